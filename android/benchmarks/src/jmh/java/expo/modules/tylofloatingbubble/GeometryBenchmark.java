@@ -0,0 +1,73 @@
+package expo.modules.tylofloatingbubble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-move and per-release geometry: the delete-area hit test and drag clamp
+// run on every frame of a drag, snap selection once per release. Positions
+// cycle through a fixed random set so the branches are not trivially predicted.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeometryBenchmark {
+    private static final int POSITIONS = 1024; // Power of two for the index mask
+
+    private final BubbleGeometry geometry = new BubbleGeometry();
+    private final int[] xs = new int[POSITIONS];
+    private final int[] ys = new int[POSITIONS];
+    private final float[] velocities = new float[POSITIONS];
+    private final int[] target = new int[2];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        // 1080x2400 at 2.75x with a status bar and gesture navigation bar
+        geometry.update(1080, 2400, 2.75f, 0, 66, 0, 44);
+        Random random = new Random(42);
+        for (int i = 0; i < POSITIONS; i++) {
+            // Includes positions past the screen edges, as a fast drag produces
+            xs[i] = random.nextInt(1400) - 160;
+            ys[i] = random.nextInt(2800) - 200;
+            velocities[i] = random.nextFloat() * 8000f - 4000f;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (POSITIONS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public boolean isInDeleteArea() {
+        int i = next();
+        return geometry.isInDeleteArea(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public void clampDrag(Blackhole blackhole) {
+        int i = next();
+        blackhole.consume(geometry.clampX(xs[i]));
+        blackhole.consume(geometry.clampY(ys[i]));
+    }
+
+    // Mirrors FloatingBubbleService.snapToEdge: project the fling, clamp, pick the edge
+    @Benchmark
+    public void snapTarget(Blackhole blackhole) {
+        int i = next();
+        float velocity = velocities[i];
+        int restX = geometry.clampX((int) BubblePhysics.projectFling(xs[i], velocity));
+        int restY = geometry.clampY((int) BubblePhysics.projectFling(ys[i], -velocity));
+        geometry.snapTarget(restX, restY, target);
+        blackhole.consume(target[0]);
+        blackhole.consume(target[1]);
+    }
+}
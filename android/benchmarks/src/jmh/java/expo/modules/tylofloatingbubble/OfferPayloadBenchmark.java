@@ -0,0 +1,64 @@
+package expo.modules.tylofloatingbubble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Parsing a showBubble payload into offer fields, as Offer.fromArguments does
+// after copying the JS arguments into a map. "full" sets every known key,
+// "minimal" only an id, so most fields fall back to their defaults.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OfferPayloadBenchmark {
+    private final Map<String, Object> full = new HashMap<>();
+    private final Map<String, Object> minimal = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        full.put("offerId", "order-8812");
+        full.put("priority", 2.0); // JS numbers arrive as Double
+        full.put("title", "New Order");
+        full.put("subtitle", "Tap to view details");
+        full.put("showBadge", true);
+        full.put("badgeCount", 3.0);
+        full.put("icon", "tylo_circle");
+        full.put("popupTitle", "New Ride Request");
+        full.put("popupSubtitle", "Premium ride");
+        full.put("popupPrice", "Rp 128.500");
+        full.put("popupDuration", "32 min");
+        full.put("popupDistance", "21.4 km");
+        full.put("popupPickupTitle", "Pickup Location");
+        full.put("popupPickupAddress", "Jl. Jend. Sudirman Kav. 52-53, Senayan, Jakarta Selatan");
+        full.put("popupDestinationTitle", "Destination");
+        full.put("popupDestinationAddress", "Terminal 3, Bandara Internasional Soekarno-Hatta, Tangerang");
+        full.put("popupPaymentMethod", "Cash");
+        full.put("popupAcceptText", "Accept");
+        full.put("popupRejectText", "Reject");
+        full.put("orderData", "{\"id\":8812}"); // Unknown key, left for extras
+
+        minimal.put("offerId", "order-8813");
+    }
+
+    @Benchmark
+    public Object parseFull() {
+        OfferFields offer = new OfferFields();
+        offer.applyPayload(full);
+        return offer;
+    }
+
+    @Benchmark
+    public Object parseMinimal() {
+        OfferFields offer = new OfferFields();
+        offer.applyPayload(minimal);
+        return offer;
+    }
+}
@@ -0,0 +1,65 @@
+package expo.modules.tylofloatingbubble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-frame spring work while the bubble snaps: one advance per display
+// frame, which runs as many fixed steps as the frame spans. A spring that
+// settles is restarted from the next release in a fixed random set.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhysicsBenchmark {
+    private static final int RELEASES = 256; // Power of two for the index mask
+
+    private final BubblePhysics physics = new BubblePhysics();
+    private final float[] xs = new float[RELEASES];
+    private final float[] ys = new float[RELEASES];
+    private final float[] velocities = new float[RELEASES];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < RELEASES; i++) {
+            xs[i] = random.nextInt(1080);
+            ys[i] = random.nextInt(2400);
+            velocities[i] = random.nextFloat() * 8000f - 4000f;
+        }
+        release();
+    }
+
+    private void release() {
+        index = (index + 1) & (RELEASES - 1);
+        float velocity = velocities[index];
+        float targetX = velocity < 0f ? 19f : 1041f;
+        physics.springTo(xs[index], ys[index], velocity, -velocity, targetX, ys[index]);
+    }
+
+    @Benchmark
+    public void frame60Hz(Blackhole blackhole) {
+        advance(1f / 60f, blackhole);
+    }
+
+    @Benchmark
+    public void frame120Hz(Blackhole blackhole) {
+        advance(1f / 120f, blackhole);
+    }
+
+    private void advance(float frameSeconds, Blackhole blackhole) {
+        if (!physics.advance(frameSeconds)) {
+            release();
+        }
+        blackhole.consume(physics.getX());
+        blackhole.consume(physics.getY());
+    }
+}
@@ -0,0 +1,223 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import expo.modules.core.interfaces.services.EventEmitter;
+
+// Service-to-JS event pipeline. Producers publish into a bounded lock-free
+// ring; the main thread drains it once per frame and emits everything as a
+// single "onBubbleEvents" batch. While no emitter is attached the ring keeps
+// events and replays them in order once one appears. Moves and state
+// changes carry the whole latest value, so a run of them within a frame is
+// emitted as just the last one.
+final class BubbleEventBus {
+    static final String EVENT_NAME = "onBubbleEvents";
+
+    static final String BUBBLE_CLICK = "bubbleClick";
+    static final String BUBBLE_MOVED = "bubbleMoved";
+    static final String BUBBLE_LONG_PRESS = "bubbleLongPress";
+    static final String BUBBLE_DOUBLE_TAP = "bubbleDoubleTap";
+    static final String BUBBLE_DELETED = "bubbleDeleted";
+    static final String OFFER_ACCEPTED = "offerAccepted";
+    static final String OFFER_REJECTED = "offerRejected";
+    static final String OFFER_EXPIRED = "offerExpired";
+    static final String OFFER_DROPPED = "offerDropped"; // Evicted from a full queue by a higher-ranked offer
+    static final String POPUP_DISMISSED = "popupDismissed";
+    static final String STATE_CHANGED = "stateChanged";
+
+    private static final int CAPACITY = 256; // Power of two
+
+    static final AtomicLong published = new AtomicLong();
+    static final AtomicLong dropped = new AtomicLong(); // Ring full, or emit failed
+    static final AtomicLong coalesced = new AtomicLong(); // Superseded moves or states within a frame
+    static final AtomicLong batches = new AtomicLong();
+
+    private static final BubbleEventBus INSTANCE = new BubbleEventBus(CAPACITY);
+
+    // Bounded MPSC ring: each slot carries a sequence number telling producers
+    // and the consumer whose turn it is, so no locks are taken on either side
+    private final int mask;
+    private final AtomicReferenceArray<Event> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // Next slot to claim
+    private long head; // Next slot to read; main thread only
+
+    private final AtomicBoolean isFrameScheduled = new AtomicBoolean();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Bundle> batch = new ArrayList<>();
+    private volatile EventEmitter emitter;
+
+    private final Choreographer.FrameCallback drainFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            drain();
+        }
+    };
+
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(drainFrameCallback);
+        }
+    };
+
+    private BubbleEventBus(int capacity) {
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    static BubbleEventBus get() {
+        return INSTANCE;
+    }
+
+    // Called when the JS runtime attaches (or goes away, with null)
+    void setEmitter(EventEmitter emitter) {
+        this.emitter = emitter;
+        if (emitter != null) {
+            scheduleDrain(); // Replay whatever was buffered meanwhile
+        }
+    }
+
+    boolean hasEmitter() {
+        return emitter != null;
+    }
+
+    void publishState(BubbleState state) {
+        Bundle payload = new Bundle();
+        payload.putBundle("state", state.toBundle());
+        publish(STATE_CHANGED, payload);
+    }
+
+    void publish(String type) {
+        publish(type, null);
+    }
+
+    // Safe from any thread; returns false when the ring is full and the event was dropped
+    boolean publish(String type, Bundle payload) {
+        Event event = new Event(type, payload, System.currentTimeMillis());
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, event);
+                    sequences.set(index, position + 1);
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                android.util.Log.e("FloatingBubble", "Event buffer full, dropped " + type);
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        published.incrementAndGet();
+        scheduleDrain();
+        return true;
+    }
+
+    int pendingCount() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    private void scheduleDrain() {
+        if (emitter == null || !isFrameScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            scheduleFrame.run();
+        } else {
+            mainHandler.post(scheduleFrame);
+        }
+    }
+
+    private void drain() {
+        isFrameScheduled.set(false);
+        EventEmitter target = emitter;
+        if (target == null) {
+            return; // Keep buffering until an emitter attaches
+        }
+        String lastType = null; // Type of the last event added to the batch
+        while (true) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break; // Empty, or the producer has not finished writing this slot
+            }
+            Event event = slots.get(index);
+            slots.set(index, null);
+            sequences.set(index, head + CAPACITY);
+            head++;
+
+            Bundle body = event.toBundle();
+            if (isLatestValue(event.type) && event.type.equals(lastType)) {
+                // Only the latest position or state in a run matters to JS
+                batch.set(batch.size() - 1, body);
+                coalesced.incrementAndGet();
+            } else {
+                // Anything else ends the run, so events on either side of it stay ordered
+                batch.add(body);
+            }
+            lastType = event.type;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Bundle envelope = new Bundle();
+        envelope.putParcelableArrayList("events", new ArrayList<>(batch));
+        int size = batch.size();
+        batch.clear();
+        try {
+            target.emit(EVENT_NAME, envelope);
+            batches.incrementAndGet();
+        } catch (Exception e) {
+            dropped.addAndGet(size);
+            android.util.Log.e("FloatingBubble", "Failed to emit " + size + " events: " + e.getMessage());
+        }
+    }
+
+    private static boolean isLatestValue(String type) {
+        return BUBBLE_MOVED.equals(type) || STATE_CHANGED.equals(type);
+    }
+
+    static void resetCounters() {
+        published.set(0);
+        dropped.set(0);
+        coalesced.set(0);
+        batches.set(0);
+    }
+
+    private static final class Event {
+        final String type;
+        final Bundle payload;
+        final long timestamp;
+
+        Event(String type, Bundle payload, long timestamp) {
+            this.type = type;
+            this.payload = payload;
+            this.timestamp = timestamp;
+        }
+
+        Bundle toBundle() {
+            Bundle body = payload != null ? payload : new Bundle();
+            body.putString("type", type);
+            body.putDouble("timestamp", timestamp);
+            return body;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package expo.modules.tylofloatingbubble;
+
+// Screen and hit-test geometry for the bubble and delete zone. Sizes are
+// given in dp and converted once per configuration; the bubble is kept
+// inside the safe area, i.e. clear of the system bars and display cutout.
+// Recomputed only when the configuration changes, so the drag path reads
+// plain fields.
+final class BubbleGeometry {
+    static final int BUBBLE_DP = 60; // Bubble window; also its bounds and hit size
+    static final int ICON_DP = 47;
+    static final int RING_DP = 52;
+    static final int BADGE_DP = 8;
+    static final int BADGE_MARGIN_DP = 2;
+    static final int HIGHLIGHT_STROKE_DP = 3; // Bubble border over the delete zone
+    static final int DELETE_AREA_DP = 54;
+    static final int DELETE_AREA_MARGIN_DP = 16; // Above the bottom inset
+    static final int EDGE_MARGIN_DP = 7; // Gap to the edge a bubble docks on
+    static final int END_MARGIN_DP = 16; // Keeps a docked bubble out of the corners
+    static final int POPUP_MAX_WIDTH_DP = 480;
+    static final float POPUP_WIDTH_FRACTION = 0.9f;
+
+    int screenWidth;
+    int screenHeight;
+    float density;
+    // Safe area insets in px
+    int insetLeft;
+    int insetTop;
+    int insetRight;
+    int insetBottom;
+
+    int bubbleSize;
+    int iconSize;
+    int ringSize;
+    int badgeSize;
+    int badgeMargin;
+    int highlightStroke;
+    int bubbleRadius;
+    int deleteAreaSize;
+    int deleteAreaBottomOffset; // Screen bottom to the zone's bottom edge
+    int deleteAreaRadius;
+    int deleteAreaCenterX;
+    int deleteAreaCenterY;
+    int popupWidth;
+    private int edgeMargin;
+    private int endMargin;
+    // Range of the bubble window's top-left corner
+    private int minX;
+    private int maxX;
+    private int minY;
+    private int maxY;
+    private long deleteAreaRadiusSquared;
+
+    // Returns true when the cached values actually changed
+    boolean update(int screenWidth, int screenHeight, float density,
+                   int insetLeft, int insetTop, int insetRight, int insetBottom) {
+        if (this.screenWidth == screenWidth && this.screenHeight == screenHeight && this.density == density
+            && this.insetLeft == insetLeft && this.insetTop == insetTop
+            && this.insetRight == insetRight && this.insetBottom == insetBottom) {
+            return false;
+        }
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.density = density;
+        this.insetLeft = insetLeft;
+        this.insetTop = insetTop;
+        this.insetRight = insetRight;
+        this.insetBottom = insetBottom;
+
+        bubbleSize = px(BUBBLE_DP);
+        iconSize = px(ICON_DP);
+        ringSize = px(RING_DP);
+        badgeSize = px(BADGE_DP);
+        badgeMargin = px(BADGE_MARGIN_DP);
+        highlightStroke = px(HIGHLIGHT_STROKE_DP);
+        bubbleRadius = bubbleSize / 2;
+        edgeMargin = px(EDGE_MARGIN_DP);
+        endMargin = px(END_MARGIN_DP);
+        minX = insetLeft;
+        minY = insetTop;
+        maxX = Math.max(minX, screenWidth - insetRight - bubbleSize);
+        maxY = Math.max(minY, screenHeight - insetBottom - bubbleSize);
+
+        // Delete area is circular, bottom center of the safe area
+        deleteAreaSize = px(DELETE_AREA_DP);
+        deleteAreaBottomOffset = insetBottom + px(DELETE_AREA_MARGIN_DP);
+        deleteAreaRadius = deleteAreaSize / 2;
+        deleteAreaCenterX = (insetLeft + screenWidth - insetRight) / 2;
+        deleteAreaCenterY = screenHeight - deleteAreaBottomOffset - deleteAreaRadius;
+        deleteAreaRadiusSquared = (long) deleteAreaRadius * deleteAreaRadius;
+
+        popupWidth = Math.min(Math.round((screenWidth - insetLeft - insetRight) * POPUP_WIDTH_FRACTION),
+            px(POPUP_MAX_WIDTH_DP));
+        return true;
+    }
+
+    private int px(int dp) {
+        return Math.round(dp * density);
+    }
+
+    // Bubble at window position (x, y); compares squared distances, no sqrt
+    boolean isInDeleteArea(int x, int y) {
+        long dx = x + bubbleRadius - deleteAreaCenterX;
+        long dy = y + bubbleRadius - deleteAreaCenterY;
+        return dx * dx + dy * dy <= deleteAreaRadiusSquared;
+    }
+
+    // Nearest-edge resting spot for a bubble that would come to rest at (restX, restY).
+    // Writes {x, y} into out so the release path does not allocate.
+    void snapTarget(int restX, int restY, int[] out) {
+        // Determine which edge is closest
+        int distanceToLeft = restX - minX;
+        int distanceToRight = maxX - restX;
+        int distanceToTop = restY - minY;
+        int distanceToBottom = maxY - restY;
+
+        int minDistance = Math.min(Math.min(distanceToLeft, distanceToRight),
+                                 Math.min(distanceToTop, distanceToBottom));
+
+        if (minDistance == distanceToLeft) {
+            out[0] = clampX(minX + edgeMargin);
+            out[1] = clampAlongEdge(restY, minY, maxY);
+        } else if (minDistance == distanceToRight) {
+            out[0] = clampX(maxX - edgeMargin);
+            out[1] = clampAlongEdge(restY, minY, maxY);
+        } else if (minDistance == distanceToTop) {
+            out[0] = clampAlongEdge(restX, minX, maxX);
+            out[1] = clampY(minY + endMargin);
+        } else { // distanceToBottom
+            out[0] = clampAlongEdge(restX, minX, maxX);
+            out[1] = clampY(maxY - endMargin);
+        }
+    }
+
+    private int clampAlongEdge(int value, int min, int max) {
+        int low = Math.min(min + endMargin, max);
+        int high = Math.max(low, max - endMargin);
+        return Math.max(low, Math.min(value, high));
+    }
+
+    int clampX(int x) {
+        return Math.max(minX, Math.min(x, maxX));
+    }
+
+    int clampY(int y) {
+        return Math.max(minY, Math.min(y, maxY));
+    }
+
+    // How far across its range a position is (0 at the first edge, 1 at the
+    // second), so a rotation can put the bubble at the same place in the new range
+    float fractionX(int x) {
+        return maxX > minX ? (clampX(x) - minX) / (float) (maxX - minX) : 0f;
+    }
+
+    float fractionY(int y) {
+        return maxY > minY ? (clampY(y) - minY) / (float) (maxY - minY) : 0f;
+    }
+
+    int xAt(float fraction) {
+        return minX + Math.round(fraction * (maxX - minX));
+    }
+
+    int yAt(float fraction) {
+        return minY + Math.round(fraction * (maxY - minY));
+    }
+}
@@ -0,0 +1,247 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+// Tap, double tap, long press and drag on the bubble, as one state machine
+// over primitive fields. Distances are compared squared against the platform
+// touch slop, and both timeouts run on a single Handler keyed off event
+// times, so a test can feed synthetic MotionEvents and advance the looper.
+// Positions are raw screen coordinates: the bubble window moves under the
+// finger during a drag.
+final class BubbleGestureRecognizer {
+    interface Listener {
+        // All on the handler's thread
+        void onDown();
+
+        // Finger left the slop; return false to keep the gesture a tap (e.g. popup open)
+        boolean onDragStart();
+
+        // Offset from the down position
+        void onDrag(float deltaX, float deltaY);
+
+        void onDragEnd();
+
+        void onTap();
+
+        void onDoubleTap();
+
+        void onLongPress();
+
+        // The system took the stream; a drag in progress ends without a drop
+        void onCancel(boolean wasDragging);
+    }
+
+    static final int STATE_IDLE = 0;
+    static final int STATE_PRESSED = 1; // Down and still within the slop
+    static final int STATE_DRAGGING = 2;
+    static final int STATE_LONG_PRESSED = 3; // Held past the timeout; a move past the slop still drags
+    static final int STATE_TAP_ONLY = 4; // Drag refused; ends as a tap whatever the movement
+
+    private final Handler handler;
+    private final Listener listener;
+    private final int touchSlopSquared;
+    private final int doubleTapSlopSquared;
+    private final long longPressTimeout;
+    private final long doubleTapTimeout;
+    private boolean isDoubleTapEnabled = false;
+
+    private int state = STATE_IDLE;
+    private float downX;
+    private float downY;
+    // First tap of a possible double tap, waiting out the timeout
+    private boolean hasPendingTap = false;
+    private boolean isSecondTap = false;
+    private long pendingTapUpTime;
+    private float pendingTapX;
+    private float pendingTapY;
+
+    private final Runnable longPress = new Runnable() {
+        @Override
+        public void run() {
+            if (state == STATE_PRESSED) {
+                state = STATE_LONG_PRESSED;
+                flushPendingTap();
+                listener.onLongPress();
+            }
+        }
+    };
+
+    private final Runnable tapConfirmed = new Runnable() {
+        @Override
+        public void run() {
+            flushPendingTap();
+        }
+    };
+
+    BubbleGestureRecognizer(int touchSlop, int doubleTapSlop, long longPressTimeout, long doubleTapTimeout,
+                            Handler handler, Listener listener) {
+        this.touchSlopSquared = touchSlop * touchSlop;
+        this.doubleTapSlopSquared = doubleTapSlop * doubleTapSlop;
+        this.longPressTimeout = longPressTimeout;
+        this.doubleTapTimeout = doubleTapTimeout;
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    // Platform slop and timeouts, main-thread handler
+    static BubbleGestureRecognizer create(Context context, Listener listener) {
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        return new BubbleGestureRecognizer(configuration.getScaledTouchSlop(),
+            configuration.getScaledDoubleTapSlop(), ViewConfiguration.getLongPressTimeout(),
+            ViewConfiguration.getDoubleTapTimeout(), new Handler(Looper.getMainLooper()), listener);
+    }
+
+    // Off by default: with it on, a single tap is only reported once the double-tap timeout passes
+    void setDoubleTapEnabled(boolean enabled) {
+        if (!enabled) {
+            flushPendingTap();
+        }
+        isDoubleTapEnabled = enabled;
+    }
+
+    int getState() {
+        return state;
+    }
+
+    boolean onTouchEvent(MotionEvent event) {
+        return onTouch(event.getActionMasked(), event.getRawX(), event.getRawY(), event.getEventTime());
+    }
+
+    // eventTime is in the uptimeMillis base, as MotionEvent reports it
+    boolean onTouch(int action, float rawX, float rawY, long eventTime) {
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                down(rawX, rawY, eventTime);
+                return true;
+
+            case MotionEvent.ACTION_MOVE:
+                move(rawX, rawY);
+                return true;
+
+            case MotionEvent.ACTION_UP:
+                up(eventTime);
+                return true;
+
+            case MotionEvent.ACTION_CANCEL:
+                cancel();
+                return true;
+
+            default:
+                // Extra pointers are ignored; the first finger owns the gesture
+                return state != STATE_IDLE;
+        }
+    }
+
+    private void down(float x, float y, long eventTime) {
+        handler.removeCallbacks(longPress);
+        isSecondTap = false;
+        if (hasPendingTap) {
+            handler.removeCallbacks(tapConfirmed);
+            if (eventTime - pendingTapUpTime <= doubleTapTimeout
+                && distanceSquared(x - pendingTapX, y - pendingTapY) <= doubleTapSlopSquared) {
+                isSecondTap = true;
+            } else {
+                flushPendingTap();
+            }
+        }
+        state = STATE_PRESSED;
+        downX = x;
+        downY = y;
+        handler.postAtTime(longPress, eventTime + longPressTimeout);
+        listener.onDown();
+    }
+
+    private void move(float x, float y) {
+        float deltaX = x - downX;
+        float deltaY = y - downY;
+        if (state == STATE_PRESSED || state == STATE_LONG_PRESSED) {
+            if (distanceSquared(deltaX, deltaY) <= touchSlopSquared) {
+                return;
+            }
+            handler.removeCallbacks(longPress);
+            // A second touch that turns into a drag leaves the first as a plain tap
+            flushPendingTap();
+            if (!listener.onDragStart()) {
+                state = STATE_TAP_ONLY;
+                return;
+            }
+            state = STATE_DRAGGING;
+        }
+        if (state == STATE_DRAGGING) {
+            listener.onDrag(deltaX, deltaY);
+        }
+    }
+
+    private void up(long eventTime) {
+        handler.removeCallbacks(longPress);
+        int ended = state;
+        state = STATE_IDLE;
+        switch (ended) {
+            case STATE_DRAGGING:
+                listener.onDragEnd();
+                break;
+
+            case STATE_PRESSED:
+            case STATE_TAP_ONLY:
+                tap(eventTime);
+                break;
+
+            default:
+                // A long press already reported itself; nothing for the release
+                break;
+        }
+    }
+
+    private void tap(long eventTime) {
+        if (isSecondTap) {
+            isSecondTap = false;
+            hasPendingTap = false;
+            listener.onDoubleTap();
+        } else if (isDoubleTapEnabled) {
+            hasPendingTap = true;
+            pendingTapUpTime = eventTime;
+            pendingTapX = downX;
+            pendingTapY = downY;
+            handler.postAtTime(tapConfirmed, eventTime + doubleTapTimeout);
+        } else {
+            listener.onTap();
+        }
+    }
+
+    // The first tap of an interrupted double tap still stands
+    private void cancel() {
+        handler.removeCallbacks(longPress);
+        flushPendingTap();
+        int ended = state;
+        state = STATE_IDLE;
+        if (ended != STATE_IDLE) {
+            listener.onCancel(ended == STATE_DRAGGING);
+        }
+    }
+
+    // Drops the gesture and anything pending without reporting it, e.g. when the bubble goes away
+    void reset() {
+        handler.removeCallbacks(longPress);
+        handler.removeCallbacks(tapConfirmed);
+        hasPendingTap = false;
+        isSecondTap = false;
+        state = STATE_IDLE;
+    }
+
+    private void flushPendingTap() {
+        if (hasPendingTap) {
+            hasPendingTap = false;
+            isSecondTap = false;
+            handler.removeCallbacks(tapConfirmed);
+            listener.onTap();
+        }
+    }
+
+    private static float distanceSquared(float dx, float dy) {
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,365 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+// Append-only journal of the bubble state (pending offers and position) so a
+// START_STICKY restart can bring the bubble back as it was. The main thread
+// only encodes records into memory; a background thread appends them in
+// batches and periodically rewrites the file as a compact snapshot.
+//
+// File: header (magic, version), then records of [length][crc32][type][body].
+// Bodies are written with DataOutputStream in a layout fixed by the version,
+// never as Parcel bytes, whose format is not stable across platform releases.
+// Reading stops at the first torn or corrupt record, which is what a crash
+// mid-write leaves behind. A file with another version is not read.
+final class BubbleJournal {
+    private static final String FILE_NAME = "tylo_floating_bubble.journal";
+    private static final int MAGIC = 0x54464a31; // "TFJ1"
+    private static final int VERSION = 2; // 1 stored Parcel bytes
+
+    private static final byte RECORD_OFFER = 1; // Offer.writeTo, replaces any offer with the same id
+    private static final byte RECORD_REMOVE = 2; // Offer id
+    private static final byte RECORD_POSITION = 3; // x, y
+
+    private static final long FLUSH_DELAY_MS = 250;
+    private static final int MAX_RECORD_BYTES = 256 * 1024;
+    private static final int COMPACT_AFTER_RECORDS = 128;
+
+    private final File file;
+    private final int queueCapacity;
+    private final HandlerThread writerThread;
+    private final Handler writer;
+
+    // Guarded by lock; filled on the main thread, swapped out by the writer
+    private final Object lock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingRecords;
+    private boolean hasPendingPosition;
+    private int pendingX;
+    private int pendingY;
+    private boolean isFlushScheduled;
+
+    // Writer thread only
+    private int recordsSinceCompaction;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable compactRunnable = new Runnable() {
+        @Override
+        public void run() {
+            compact();
+        }
+    };
+
+    BubbleJournal(Context context, int queueCapacity) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        this.queueCapacity = queueCapacity;
+        writerThread = new HandlerThread("FloatingBubbleJournal", android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        writerThread.start();
+        writer = new Handler(writerThread.getLooper());
+    }
+
+    // What the last service instance left behind
+    static final class State {
+        final Offer[] offers; // Arrival order
+        final boolean hasPosition;
+        final int x;
+        final int y;
+
+        State(Offer[] offers, boolean hasPosition, int x, int y) {
+            this.offers = offers;
+            this.hasPosition = hasPosition;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // One sequential read; returns null when there is nothing to restore
+    State restore() {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            byte[] data = new byte[(int) file.length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                in.readFully(data);
+            } finally {
+                in.close();
+            }
+            State state = replay(data, queueCapacity);
+            // Rewrite as a snapshot, which also drops any torn tail
+            writer.post(compactRunnable);
+            return state;
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to restore journal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    void putOffer(Offer offer) {
+        byte[] body;
+        try {
+            body = encode(offer);
+        } catch (IOException e) {
+            android.util.Log.e("FloatingBubble", "Failed to encode offer " + offer.id + ": " + e.getMessage());
+            return;
+        }
+        if (body.length > MAX_RECORD_BYTES) {
+            android.util.Log.e("FloatingBubble", "Offer " + offer.id + " too large to journal: " + body.length + " bytes");
+            return;
+        }
+        synchronized (lock) {
+            appendRecordLocked(RECORD_OFFER, body);
+            scheduleFlushLocked();
+        }
+    }
+
+    void removeOffer(String id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            OfferFields.writeString(new DataOutputStream(bytes), id);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+        }
+        byte[] body = bytes.toByteArray();
+        synchronized (lock) {
+            appendRecordLocked(RECORD_REMOVE, body);
+            scheduleFlushLocked();
+        }
+    }
+
+    // Only the latest position is written per batch
+    void putPosition(int x, int y) {
+        synchronized (lock) {
+            hasPendingPosition = true;
+            pendingX = x;
+            pendingY = y;
+            scheduleFlushLocked();
+        }
+    }
+
+    // Deliberate hide: nothing should come back on restart
+    void clear() {
+        synchronized (lock) {
+            pending.reset();
+            pendingRecords = 0;
+            hasPendingPosition = false;
+        }
+        writer.removeCallbacks(compactRunnable);
+        writer.post(new Runnable() {
+            @Override
+            public void run() {
+                recordsSinceCompaction = 0;
+                if (file.exists() && !file.delete()) {
+                    android.util.Log.e("FloatingBubble", "Failed to delete journal");
+                }
+            }
+        });
+    }
+
+    // Writes what is pending, then stops the writer thread
+    void close() {
+        writer.removeCallbacks(flushRunnable);
+        writer.post(flushRunnable);
+        writerThread.quitSafely();
+    }
+
+    private void appendRecordLocked(byte type, byte[] body) {
+        try {
+            writeRecord(new DataOutputStream(pending), type, body, 0, body.length);
+            pendingRecords++;
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+        }
+    }
+
+    private void scheduleFlushLocked() {
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            writer.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
+    }
+
+    private void flush() {
+        byte[] batch;
+        int records;
+        synchronized (lock) {
+            isFlushScheduled = false;
+            if (hasPendingPosition) {
+                appendRecordLocked(RECORD_POSITION, encodePosition(pendingX, pendingY));
+                hasPendingPosition = false;
+            }
+            if (pending.size() == 0) {
+                return;
+            }
+            batch = pending.toByteArray();
+            records = pendingRecords;
+            pending.reset();
+            pendingRecords = 0;
+        }
+        try {
+            boolean isNew = !file.exists() || file.length() == 0;
+            FileOutputStream out = new FileOutputStream(file, true);
+            try {
+                if (isNew) {
+                    DataOutputStream header = new DataOutputStream(out);
+                    header.writeInt(MAGIC);
+                    header.writeInt(VERSION);
+                }
+                out.write(batch);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            recordsSinceCompaction += records;
+            if (recordsSinceCompaction >= COMPACT_AFTER_RECORDS) {
+                compact();
+            }
+        } catch (IOException e) {
+            android.util.Log.e("FloatingBubble", "Failed to append journal: " + e.getMessage());
+        }
+    }
+
+    // Replays the file and rewrites it as one record per live offer plus the position
+    private void compact() {
+        if (!file.exists()) {
+            return;
+        }
+        File temp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        try {
+            byte[] data = new byte[(int) file.length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                in.readFully(data);
+            } finally {
+                in.close();
+            }
+            State state = replay(data, queueCapacity);
+
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                DataOutputStream stream = new DataOutputStream(out);
+                stream.writeInt(MAGIC);
+                stream.writeInt(VERSION);
+                if (state.hasPosition) {
+                    byte[] body = encodePosition(state.x, state.y);
+                    writeRecord(stream, RECORD_POSITION, body, 0, body.length);
+                }
+                for (Offer offer : state.offers) {
+                    byte[] body = encode(offer);
+                    writeRecord(stream, RECORD_OFFER, body, 0, body.length);
+                }
+                stream.flush();
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("rename failed");
+            }
+            recordsSinceCompaction = 0;
+            android.util.Log.d("FloatingBubble", "Journal compacted to " + file.length() + " bytes");
+        } catch (Exception e) {
+            temp.delete();
+            android.util.Log.e("FloatingBubble", "Failed to compact journal: " + e.getMessage());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, byte[] body, int offset, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(body, offset, length);
+        out.writeInt(length + 1);
+        out.writeInt((int) crc.getValue());
+        out.writeByte(type);
+        out.write(body, offset, length);
+    }
+
+    // Applies records in order to a queue of the same capacity, so eviction matches the service
+    private static State replay(byte[] data, int queueCapacity) throws IOException {
+        OfferQueue queue = new OfferQueue(queueCapacity);
+        boolean hasPosition = false;
+        int x = 0;
+        int y = 0;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < 8 || in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return new State(new Offer[0], false, 0, 0);
+        }
+        int offset = 8;
+        int records = 0;
+        CRC32 crc = new CRC32();
+        while (true) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            offset += 8;
+            if (length < 1 || length > MAX_RECORD_BYTES + 1 || offset + length > data.length) {
+                android.util.Log.d("FloatingBubble", "Journal ends with a torn record after " + records + " records");
+                break;
+            }
+            crc.reset();
+            crc.update(data, offset, length);
+            if ((int) crc.getValue() != checksum) {
+                android.util.Log.d("FloatingBubble", "Journal checksum mismatch after " + records + " records");
+                break;
+            }
+            byte type = data[offset];
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(data, offset + 1, length - 1));
+            if (type == RECORD_OFFER) {
+                queue.offer(Offer.readFrom(body));
+            } else if (type == RECORD_REMOVE) {
+                queue.remove(OfferFields.readString(body));
+            } else if (type == RECORD_POSITION) {
+                x = body.readInt();
+                y = body.readInt();
+                hasPosition = true;
+            }
+            offset += length;
+            in.skipBytes(length);
+            records++;
+        }
+        return new State(queue.toArrayInArrivalOrder(), hasPosition, x, y);
+    }
+
+    private static byte[] encode(Offer offer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        offer.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodePosition(int x, int y) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(x);
+            out.writeInt(y);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,174 @@
+package expo.modules.tylofloatingbubble;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Process-wide counters and latency histograms shared by the module and the
+// service. Recording is lock-free and allocation-free; only reading builds
+// snapshots.
+final class BubbleMetrics {
+    // Latency bucket upper bounds in microseconds (last bucket is open-ended)
+    private static final long[] LATENCY_BOUNDS_MICROS = {
+        500, 1000, 2000, 4000, 8000, 16000, 32000, 64000, 128000, 256000, 512000, 1024000, 2048000, 4096000, 8192000, 16384000
+    };
+    // Count bucket upper bounds, used for relayouts per drag
+    private static final long[] COUNT_BOUNDS = {
+        0, 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024
+    };
+
+    static final Histogram showToFirstFrame = new Histogram("showToFirstFrameMicros", LATENCY_BOUNDS_MICROS);
+    static final Histogram tapToPopupVisible = new Histogram("tapToPopupVisibleMicros", LATENCY_BOUNDS_MICROS);
+    static final Histogram popupVisibleToDecision = new Histogram("popupVisibleToDecisionMicros", LATENCY_BOUNDS_MICROS);
+    static final Histogram relayoutsPerDrag = new Histogram("relayoutsPerDrag", COUNT_BOUNDS);
+
+    static final AtomicLong showRequests = new AtomicLong();
+    static final AtomicLong warmShows = new AtomicLong(); // Shown from standby (prewarm) instead of built
+    static final AtomicLong ignoredShowRequests = new AtomicLong(); // Rejected before reaching the service, e.g. no permission
+    static final AtomicLong droppedShowRequests = new AtomicLong(); // Reached the service but did not fit in the offer queue
+    static final AtomicLong offersAccepted = new AtomicLong();
+    static final AtomicLong offersRejected = new AtomicLong();
+    static final AtomicLong offersExpired = new AtomicLong(); // Deadline passed while pending, or on arrival
+    static final AtomicLong offersEvicted = new AtomicLong(); // Queued, then pushed out of a full queue
+    static final AtomicLong drags = new AtomicLong();
+    static final AtomicLong dragFrames = new AtomicLong();
+    static final AtomicLong dragRelayouts = new AtomicLong();
+    // Overlay windows: a gauge of those currently added, its high-water mark, and total adds
+    static final AtomicLong liveWindows = new AtomicLong();
+    static final AtomicLong peakLiveWindows = new AtomicLong();
+    static final AtomicLong windowsAdded = new AtomicLong();
+    // Memory trims per level (MemoryTrimPolicy.metricsIndex): how many, and the estimated bytes released
+    static final String[] TRIM_LEVELS = {
+        "runningModerate", "runningLow", "runningCritical", "uiHidden", "background", "moderate", "complete", "lowMemory"
+    };
+    static final AtomicLongArray trimCounts = new AtomicLongArray(TRIM_LEVELS.length);
+    static final AtomicLongArray trimBytesFreed = new AtomicLongArray(TRIM_LEVELS.length);
+    static final AtomicLongArray lastTrimBytesFreed = new AtomicLongArray(TRIM_LEVELS.length);
+
+    static final Histogram[] HISTOGRAMS = {
+        showToFirstFrame, tapToPopupVisible, popupVisibleToDecision, relayoutsPerDrag
+    };
+
+    private BubbleMetrics() {
+    }
+
+    static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        showRequests.set(0);
+        warmShows.set(0);
+        ignoredShowRequests.set(0);
+        droppedShowRequests.set(0);
+        offersAccepted.set(0);
+        offersRejected.set(0);
+        offersExpired.set(0);
+        offersEvicted.set(0);
+        drags.set(0);
+        dragFrames.set(0);
+        dragRelayouts.set(0);
+        // liveWindows is a gauge, not a counter; the peak restarts from it
+        peakLiveWindows.set(liveWindows.get());
+        windowsAdded.set(0);
+        for (int i = 0; i < TRIM_LEVELS.length; i++) {
+            trimCounts.set(i, 0);
+            trimBytesFreed.set(i, 0);
+            lastTrimBytesFreed.set(i, 0);
+        }
+    }
+
+    static void windowAdded() {
+        windowsAdded.incrementAndGet();
+        long live = liveWindows.incrementAndGet();
+        long peak;
+        while (live > (peak = peakLiveWindows.get()) && !peakLiveWindows.compareAndSet(peak, live)) {
+            // Retry until the peak is at least live
+        }
+    }
+
+    static void windowRemoved() {
+        liveWindows.decrementAndGet();
+    }
+
+    static void trimmed(int levelIndex, long bytesFreed) {
+        trimCounts.incrementAndGet(levelIndex);
+        trimBytesFreed.addAndGet(levelIndex, bytesFreed);
+        lastTrimBytesFreed.set(levelIndex, bytesFreed);
+    }
+
+    // Fixed-bucket histogram; percentiles resolve to the upper bound of their bucket
+    static final class Histogram {
+        final String name;
+        private final long[] bounds;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name, long[] bounds) {
+            this.name = name;
+            this.bounds = bounds;
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        void record(long value) {
+            if (value < 0) {
+                return;
+            }
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        // Convenience for System.nanoTime() deltas recorded in microseconds
+        void recordSinceNanos(long startNanos) {
+            if (startNanos != 0L) {
+                record((System.nanoTime() - startNanos) / 1000L);
+            }
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long sum() {
+            return sum.get();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        long percentile(double fraction) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i < bounds.length ? Math.min(bounds[i], max.get()) : max.get();
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
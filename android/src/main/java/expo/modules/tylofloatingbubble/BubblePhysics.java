@@ -0,0 +1,120 @@
+package expo.modules.tylofloatingbubble;
+
+// Fling and spring motion for the bubble. Pure Java with a fixed-timestep
+// integrator, so the same inputs always produce the same path regardless of
+// the display refresh rate.
+final class BubblePhysics {
+    // Integration step; frames are split into as many fixed steps as they span
+    static final float STEP_SECONDS = 1f / 240f;
+    // Frames longer than this (e.g. after jank) are clamped to avoid a catch-up burst
+    static final float MAX_FRAME_SECONDS = 0.064f;
+
+    // Spring stiffness in 1/s^2 for a unit mass; 400 settles in roughly 300ms from rest
+    static final float DEFAULT_STIFFNESS = 400f;
+    // Exponential fling decay rate in 1/s: velocity v coasts a total distance of v / FLING_FRICTION
+    static final float FLING_FRICTION = 4f;
+
+    private static final float REST_DISTANCE = 0.5f; // px
+    private static final float REST_VELOCITY = 10f; // px/s
+
+    private final float stiffness;
+    private final float damping;
+
+    private float x;
+    private float y;
+    private float velocityX;
+    private float velocityY;
+    private float targetX;
+    private float targetY;
+    private float accumulator;
+    private boolean running;
+
+    BubblePhysics() {
+        this(DEFAULT_STIFFNESS);
+    }
+
+    BubblePhysics(float stiffness) {
+        this.stiffness = stiffness;
+        // Critical damping: fastest approach without oscillating around the target
+        this.damping = 2f * (float) Math.sqrt(stiffness);
+    }
+
+    // Where a fling released at position with velocity would come to rest
+    static float projectFling(float position, float velocity) {
+        return position + velocity / FLING_FRICTION;
+    }
+
+    void springTo(float fromX, float fromY, float velocityX, float velocityY, float targetX, float targetY) {
+        this.x = fromX;
+        this.y = fromY;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        this.accumulator = 0f;
+        this.running = true;
+    }
+
+    // Advances by a frame's worth of time; returns false once the bubble has settled
+    boolean advance(float frameSeconds) {
+        if (!running) {
+            return false;
+        }
+        accumulator += Math.min(Math.max(frameSeconds, 0f), MAX_FRAME_SECONDS);
+        while (accumulator >= STEP_SECONDS) {
+            step(STEP_SECONDS);
+            accumulator -= STEP_SECONDS;
+        }
+        if (isAtRest()) {
+            x = targetX;
+            y = targetY;
+            velocityX = 0f;
+            velocityY = 0f;
+            running = false;
+        }
+        return running;
+    }
+
+    void stop() {
+        running = false;
+        velocityX = 0f;
+        velocityY = 0f;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    float getX() {
+        return x;
+    }
+
+    float getY() {
+        return y;
+    }
+
+    float getVelocityX() {
+        return velocityX;
+    }
+
+    float getVelocityY() {
+        return velocityY;
+    }
+
+    // Semi-implicit Euler: velocity first, then position from the new velocity
+    private void step(float dt) {
+        float accelerationX = -stiffness * (x - targetX) - damping * velocityX;
+        float accelerationY = -stiffness * (y - targetY) - damping * velocityY;
+        velocityX += accelerationX * dt;
+        velocityY += accelerationY * dt;
+        x += velocityX * dt;
+        y += velocityY * dt;
+    }
+
+    private boolean isAtRest() {
+        return Math.abs(x - targetX) < REST_DISTANCE
+            && Math.abs(y - targetY) < REST_DISTANCE
+            && Math.abs(velocityX) < REST_VELOCITY
+            && Math.abs(velocityY) < REST_VELOCITY;
+    }
+}
@@ -0,0 +1,88 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// What the service is showing, as one immutable snapshot. The service swaps
+// in a new one whenever something visible changes, and anyone reads the
+// latest with a single volatile load, without going through the main thread
+// or the binder. The stopped snapshot is what's left after onDestroy.
+final class BubbleState {
+    static final BubbleState STOPPED = new BubbleState(false, false, false, false, null, 0, false, 0, 0, 0L);
+
+    private static final AtomicReference<BubbleState> CURRENT = new AtomicReference<>(STOPPED);
+
+    final boolean running;
+    final boolean bubbleVisible;
+    final boolean standby;
+    final boolean popupOpen;
+    final String currentOfferId;
+    final int queueDepth;
+    final boolean hasPosition;
+    final int x;
+    final int y;
+    final long version; // Increments with every published change
+
+    BubbleState(boolean running, boolean bubbleVisible, boolean standby, boolean popupOpen, String currentOfferId,
+                int queueDepth, boolean hasPosition, int x, int y, long version) {
+        this.running = running;
+        this.bubbleVisible = bubbleVisible;
+        this.standby = standby;
+        this.popupOpen = popupOpen;
+        this.currentOfferId = currentOfferId;
+        this.queueDepth = queueDepth;
+        this.hasPosition = hasPosition;
+        this.x = x;
+        this.y = y;
+        this.version = version;
+    }
+
+    static BubbleState current() {
+        return CURRENT.get();
+    }
+
+    // Returns the published snapshot, or null when nothing changed. The version
+    // is assigned here, so callers pass any value.
+    static BubbleState publish(BubbleState next) {
+        while (true) {
+            BubbleState previous = CURRENT.get();
+            if (next.sameAs(previous)) {
+                return null;
+            }
+            BubbleState versioned = new BubbleState(next.running, next.bubbleVisible, next.standby, next.popupOpen,
+                next.currentOfferId, next.queueDepth, next.hasPosition, next.x, next.y, previous.version + 1);
+            if (CURRENT.compareAndSet(previous, versioned)) {
+                return versioned;
+            }
+        }
+    }
+
+    private boolean sameAs(BubbleState other) {
+        return running == other.running
+            && bubbleVisible == other.bubbleVisible
+            && standby == other.standby
+            && popupOpen == other.popupOpen
+            && queueDepth == other.queueDepth
+            && hasPosition == other.hasPosition
+            && x == other.x
+            && y == other.y
+            && (currentOfferId != null ? currentOfferId.equals(other.currentOfferId) : other.currentOfferId == null);
+    }
+
+    Bundle toBundle() {
+        Bundle state = new Bundle();
+        state.putBoolean("running", running);
+        state.putBoolean("bubbleVisible", bubbleVisible);
+        state.putBoolean("standby", standby);
+        state.putBoolean("popupOpen", popupOpen);
+        state.putString("currentOfferId", currentOfferId);
+        state.putInt("queueDepth", queueDepth);
+        if (hasPosition) {
+            state.putInt("x", x);
+            state.putInt("y", y);
+        }
+        state.putDouble("version", version);
+        return state;
+    }
+}
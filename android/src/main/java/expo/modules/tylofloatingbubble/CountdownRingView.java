@@ -0,0 +1,161 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.view.Choreographer;
+import android.view.View;
+
+// Time left on the head offer, drawn as a ring around the bubble icon. It is
+// its own small View, so each update invalidates only the ring's bounds. It
+// advances from a Choreographer callback, at most one draw per vsync, and
+// only while it is attached, shown and counting down.
+final class CountdownRingView extends View {
+    private static final float STROKE_DP = 6f;
+    private static final float SWEEP_STEP = 0.5f; // Degrees; smaller changes are not redrawn
+    private static final int COLOR_TRACK = Color.parseColor("#33FFFFFF");
+    private static final int COLOR_OK = Color.parseColor("#10B981");
+    private static final int COLOR_LOW = Color.parseColor("#FF4444");
+    private static final float LOW_FRACTION = 0.25f;
+
+    private final Paint trackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint arcPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF arcBounds = new RectF();
+    private float strokeWidth; // px for the current density
+
+    // Wall-clock millis, like the payload's expiresAt; zero when there is no deadline
+    private long startMillis;
+    private long endMillis;
+    private float sweep; // Degrees drawn by the last onDraw
+    private boolean isFrameScheduled = false;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isFrameScheduled = false;
+            onFrame();
+        }
+    };
+
+    CountdownRingView(Context context) {
+        super(context);
+        trackPaint.setStyle(Paint.Style.STROKE);
+        trackPaint.setColor(COLOR_TRACK);
+        arcPaint.setStyle(Paint.Style.STROKE);
+        arcPaint.setStrokeCap(Paint.Cap.ROUND);
+        updateStrokeWidth();
+        setVisibility(GONE);
+    }
+
+    private void updateStrokeWidth() {
+        strokeWidth = STROKE_DP * getResources().getDisplayMetrics().density;
+        trackPaint.setStrokeWidth(strokeWidth);
+        arcPaint.setStrokeWidth(strokeWidth);
+    }
+
+    // startMillis is when the countdown began (offer arrival); endMillis 0 hides the ring
+    void setDeadline(long startMillis, long endMillis) {
+        if (this.startMillis == startMillis && this.endMillis == endMillis) {
+            return;
+        }
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        boolean active = endMillis > 0 && endMillis > System.currentTimeMillis();
+        setVisibility(active ? VISIBLE : GONE);
+        sweep = -1f; // Force the next frame to draw
+        if (active) {
+            scheduleFrame();
+        } else {
+            cancelFrame();
+        }
+    }
+
+    private float currentSweep() {
+        long total = endMillis - startMillis;
+        if (total <= 0) {
+            return 0f;
+        }
+        float fraction = (endMillis - System.currentTimeMillis()) / (float) total;
+        return 360f * Math.max(0f, Math.min(1f, fraction));
+    }
+
+    private void onFrame() {
+        float next = currentSweep();
+        if (Math.abs(next - sweep) >= SWEEP_STEP || (next == 0f && sweep != 0f)) {
+            invalidate();
+        }
+        if (next > 0f) {
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (isFrameScheduled || endMillis == 0 || !isAttachedToWindow() || !isShown()) {
+            return;
+        }
+        isFrameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    private void cancelFrame() {
+        if (isFrameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            isFrameScheduled = false;
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        scheduleFrame();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelFrame();
+        super.onDetachedFromWindow();
+    }
+
+    // Covers this view, an ancestor, or the whole window being hidden
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (isShown()) {
+            scheduleFrame();
+        } else {
+            cancelFrame();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == VISIBLE) {
+            scheduleFrame();
+        } else {
+            cancelFrame();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        // The service resizes the ring from dp geometry, so a density change lands here too
+        updateStrokeWidth();
+        float inset = strokeWidth / 2f;
+        arcBounds.set(inset, inset, width - inset, height - inset);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        sweep = currentSweep();
+        canvas.drawOval(arcBounds, trackPaint);
+        if (sweep > 0f) {
+            arcPaint.setColor(sweep / 360f <= LOW_FRACTION ? COLOR_LOW : COLOR_OK);
+            // Shrinks clockwise from 12 o'clock
+            canvas.drawArc(arcBounds, -90f, sweep, false, arcPaint);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Insets;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.Display;
+import android.view.DisplayCutout;
+import android.view.Surface;
+import android.view.WindowInsets;
+import android.view.WindowManager;
+import android.view.WindowMetrics;
+
+// Full display size and the insets of the system bars and display cutout, as
+// an overlay window sees them. API 30+ reads WindowMetrics. Older releases use
+// the real display size and the platform's bar dimensions, plus the display
+// cutout on API 29. Read once per configuration change.
+final class DisplaySafeArea {
+    int width;
+    int height;
+    int left;
+    int top;
+    int right;
+    int bottom;
+
+    void read(Context context, WindowManager windowManager) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            WindowMetrics metrics = windowManager.getMaximumWindowMetrics();
+            Rect bounds = metrics.getBounds();
+            Insets insets = metrics.getWindowInsets().getInsetsIgnoringVisibility(
+                WindowInsets.Type.systemBars() | WindowInsets.Type.displayCutout());
+            width = bounds.width();
+            height = bounds.height();
+            left = insets.left;
+            top = insets.top;
+            right = insets.right;
+            bottom = insets.bottom;
+            return;
+        }
+
+        Display display = windowManager.getDefaultDisplay();
+        Point size = new Point();
+        display.getRealSize(size);
+        width = size.x;
+        height = size.y;
+        left = 0;
+        right = 0;
+        bottom = 0;
+        Resources resources = context.getResources();
+        top = dimension(resources, "status_bar_height");
+
+        if (hasNavigationBar(resources)) {
+            int rotation = display.getRotation();
+            boolean landscape = rotation == Surface.ROTATION_90 || rotation == Surface.ROTATION_270;
+            if (!landscape) {
+                bottom = dimension(resources, "navigation_bar_height");
+            } else if (resources.getConfiguration().smallestScreenWidthDp >= 600) {
+                // Tablets keep the bar at the bottom in landscape
+                bottom = dimension(resources, "navigation_bar_height_landscape");
+            } else if (rotation == Surface.ROTATION_90) {
+                right = dimension(resources, "navigation_bar_width");
+            } else {
+                left = dimension(resources, "navigation_bar_width");
+            }
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            DisplayCutout cutout = display.getCutout();
+            if (cutout != null) {
+                left = Math.max(left, cutout.getSafeInsetLeft());
+                top = Math.max(top, cutout.getSafeInsetTop());
+                right = Math.max(right, cutout.getSafeInsetRight());
+                bottom = Math.max(bottom, cutout.getSafeInsetBottom());
+            }
+        }
+    }
+
+    private static boolean hasNavigationBar(Resources resources) {
+        int id = resources.getIdentifier("config_showNavigationBar", "bool", "android");
+        // Unknown (some OEM builds): assume a bar rather than let the bubble slide under one
+        return id == 0 || resources.getBoolean(id);
+    }
+
+    private static int dimension(Resources resources, String name) {
+        int id = resources.getIdentifier(name, "dimen", "android");
+        return id != 0 ? resources.getDimensionPixelSize(id) : 0;
+    }
+}
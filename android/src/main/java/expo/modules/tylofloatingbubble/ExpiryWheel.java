@@ -0,0 +1,195 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// Deadlines for every queued offer on one hashed timing wheel, driven by a
+// single Handler message that is only posted while something is scheduled.
+// Scheduling and cancelling are O(1); each tick visits one slot. Deadlines
+// are wall-clock (the payload's expiresAt) and the wheel advances on
+// elapsedRealtime, so time spent in deep sleep still counts on wake-up.
+final class ExpiryWheel {
+    interface Listener {
+        // Main thread, after the tick; the entry is already gone from the wheel
+        void onExpired(String offerId);
+    }
+
+    private static final long TICK_MS = 100;
+    private static final int SLOTS = 128; // Power of two; one turn covers 12.8s
+
+    // Intrusive list node, so cancel unlinks without searching the slot
+    private static final class Entry {
+        final String id;
+        final long deadline; // elapsedRealtime
+        int rounds; // Full turns left before the slot visit that expires it
+        int slot;
+        Entry prev;
+        Entry next;
+
+        Entry(String id, long deadline) {
+            this.id = id;
+            this.deadline = deadline;
+        }
+    }
+
+    private final Entry[] slots = new Entry[SLOTS];
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    private final ArrayList<String> expired = new ArrayList<>();
+    private int cursor; // Last slot visited
+    private long wheelTime; // elapsedRealtime of the last visit
+    private boolean isTicking = false;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            isTicking = false;
+            advance(SystemClock.elapsedRealtime());
+            // Listeners run after the wheel is consistent, so they may schedule or cancel freely
+            for (int i = 0; i < expired.size(); i++) {
+                listener.onExpired(expired.get(i));
+            }
+            expired.clear();
+            scheduleTick();
+        }
+    };
+
+    ExpiryWheel(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Converts a wall-clock deadline to the wheel's clock
+    static long toElapsed(long expiresAtMillis) {
+        return SystemClock.elapsedRealtime() + (expiresAtMillis - System.currentTimeMillis());
+    }
+
+    // Replaces any deadline already held for the id; expiresAt is epoch millis, 0 cancels
+    void schedule(String offerId, long expiresAtMillis) {
+        cancel(offerId);
+        if (offerId == null || expiresAtMillis <= 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (entries.isEmpty()) {
+            // Idle wheel: restart the clock here instead of catching up on empty slots
+            wheelTime = now;
+        }
+        Entry entry = new Entry(offerId, toElapsed(expiresAtMillis));
+        insert(entry);
+        entries.put(offerId, entry);
+        scheduleTick();
+    }
+
+    void cancel(String offerId) {
+        Entry entry = offerId != null ? entries.remove(offerId) : null;
+        if (entry != null) {
+            unlink(entry);
+        }
+        if (entries.isEmpty() && isTicking) {
+            handler.removeCallbacks(tick);
+            isTicking = false;
+        }
+    }
+
+    void clear() {
+        handler.removeCallbacks(tick);
+        isTicking = false;
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = null;
+        }
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void insert(Entry entry) {
+        // Due on the first visit at or after the deadline, at least one tick out
+        long ticks = Math.max(1, (entry.deadline - wheelTime + TICK_MS - 1) / TICK_MS);
+        entry.rounds = (int) Math.min(Integer.MAX_VALUE, (ticks - 1) / SLOTS);
+        entry.slot = (int) ((cursor + ticks) & (SLOTS - 1));
+        entry.prev = null;
+        entry.next = slots[entry.slot];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        slots[entry.slot] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else if (slots[entry.slot] == entry) {
+            slots[entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private void advance(long now) {
+        if (now - wheelTime >= SLOTS * TICK_MS) {
+            // Woke up more than a turn late (deep sleep): settle everything against the clock
+            rehash(now);
+            return;
+        }
+        while (wheelTime + TICK_MS <= now) {
+            wheelTime += TICK_MS;
+            cursor = (cursor + 1) & (SLOTS - 1);
+            visit(cursor);
+        }
+    }
+
+    private void visit(int slot) {
+        Entry entry = slots[slot];
+        while (entry != null) {
+            Entry next = entry.next;
+            if (entry.rounds > 0) {
+                entry.rounds--;
+            } else {
+                expire(entry);
+            }
+            entry = next;
+        }
+    }
+
+    private void rehash(long now) {
+        Entry[] live = entries.values().toArray(new Entry[0]);
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = null;
+        }
+        wheelTime = now;
+        for (Entry entry : live) {
+            entry.prev = null;
+            entry.next = null;
+            if (entry.deadline <= now) {
+                expire(entry);
+            } else {
+                insert(entry);
+            }
+        }
+    }
+
+    private void expire(Entry entry) {
+        unlink(entry);
+        entries.remove(entry.id);
+        expired.add(entry.id);
+    }
+
+    private void scheduleTick() {
+        if (isTicking || entries.isEmpty()) {
+            return;
+        }
+        isTicking = true;
+        long delay = Math.max(0, wheelTime + TICK_MS - SystemClock.elapsedRealtime());
+        handler.postDelayed(tick, delay);
+    }
+}
@@ -19,35 +19,221 @@ import expo.modules.core.ModuleRegistry;
 import expo.modules.core.interfaces.services.EventEmitter;
 
 public class FloatingBubbleService extends Service {
+    // Intent action for in-place updates of the live bubble and popup
+    static final String ACTION_UPDATE = "expo.modules.tylofloatingbubble.UPDATE";
+    // Builds and attaches the bubble ahead of the first offer, hidden (standby)
+    static final String ACTION_PREWARM = "expo.modules.tylofloatingbubble.PREWARM";
+
     private WindowManager windowManager;
     private View floatingView;
     private View deleteAreaView;
-    private boolean isExpanded = false;
+    private WindowManager.LayoutParams deleteParams; // Own-window mode only
+    // Bubble window attached but see-through and untouchable, waiting for the first offer
+    private boolean isStandby = false;
+    private WindowManager.LayoutParams bubbleParams;
+    private final BubbleGeometry geometry = new BubbleGeometry();
+    private final DisplaySafeArea safeArea = new DisplaySafeArea();
+
+    // Release motion: a fixed-timestep spring stepped from a Choreographer callback
+    private final BubblePhysics physics = new BubblePhysics();
+    private long lastPhysicsFrameNanos = 0L;
+    private final android.view.Choreographer.FrameCallback physicsFrameCallback = new android.view.Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            applyPhysicsFrame(frameTimeNanos);
+        }
+    };
+    private android.view.VelocityTracker velocityTracker;
+    private BubbleGestureRecognizer gestureRecognizer;
+    private int maxFlingVelocity;
+
+    // Drag pipeline: move events only record the latest target, a frame callback applies it
+    private int pendingDragX;
+    private int pendingDragY;
+    private boolean isDragFrameScheduled = false;
+    private final android.view.Choreographer.FrameCallback dragFrameCallback = new android.view.Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            applyDragFrame();
+        }
+    };
+
+    // Set by the module; bubbleMoved events per second while dragging or snapping, 0 for settled positions only
+    static volatile int bubbleMovedRate = 0;
+    // Opt-in: a single tap on the bubble waits out the double-tap timeout while this is on
+    static volatile boolean detectDoubleTap = false;
+    private final MoveThrottle moveThrottle = new MoveThrottle(new MoveThrottle.Sink() {
+        @Override
+        public void send(int x, int y, boolean dragging, boolean settled) {
+            android.os.Bundle payload = new android.os.Bundle();
+            payload.putInt("x", x);
+            payload.putInt("y", y);
+            payload.putBoolean("dragging", dragging);
+            payload.putBoolean("settled", settled);
+            BubbleEventBus.get().publish(BubbleEventBus.BUBBLE_MOVED, payload);
+        }
+    });
+
+    // Drag counters, reset on ACTION_DOWN and logged on ACTION_UP
+    private int dragMoveEvents;
+    private int dragFrames;
+    private int dragRelayouts;
     private EventEmitter eventEmitter;
     
-    // Store popup data for later use - hardcoded for testing
-    private String popupTitle = "New Ride Request";
-    private String popupSubtitle = "Tap to view details";
-    private String popupPrice = "$24.50";
-    private String popupDuration = "15 min";
-    private String popupDistance = "8.2 km";
-    private String popupPickupTitle = "Lokasi Penjemputan";
-    private String popupPickupAddress = "123 Main Street, Downtown Area";
-    private String popupDestinationTitle = "Tujuan";
-    private String popupDestinationAddress = "456 Business Center, Tech District";
-    private String popupPaymentMethod = "Credit Card";
-    private String popupAcceptText = "Terima Perjalanan";
-    private String popupRejectText = "Tolak";
+    // Pending offers, best first; the head is what the bubble and popup show
+    private static final int MAX_PENDING_OFFERS = 16;
+    private final int[] snapTarget = new int[2];
+    private final OfferQueue offerQueue = new OfferQueue(MAX_PENDING_OFFERS);
+    private Offer currentOffer;
+    private BubbleJournal journal;
+
+    // Icons are decoded at the size they are drawn (geometry.iconSize), into a small shared-size cache
+    private IconLoader iconLoader;
+    private BubbleJournal.State restoredState;
+    private TextView badgeView;
+    private ImageView bubbleIconView;
+
+    // Offer deadlines: one timing wheel for the whole queue, a ring on the bubble for the head
+    private ExpiryWheel expiryWheel;
+    private CountdownRingView countdownRing;
+
+    // Popup tree is built once (at idle or on first tap) and only rebound afterwards
+    private PopupViewHolder popupHolder;
+    // Set by the module; the flat mode draws the whole card as a single View
+    static volatile boolean useFlatPopup = false;
+    // Popup text shaped in the background when offers arrive, read when the popup opens
+    private PopupTextCache popupTextCache;
+    private android.view.WindowManager.LayoutParams popupParams;
+    private boolean isPopupAttached = false;
+    // Set by the module; delete zone and popup share one lazily shown window. Read when the bubble is created.
+    static volatile boolean useCompositor = false;
+    private OverlayCompositor compositor;
+    private final OverlayCompositor.Windows overlayWindows = new OverlayCompositor.Windows() {
+        @Override
+        public void add(View root, WindowManager.LayoutParams params) {
+            addOverlayWindow(root, params);
+        }
+
+        @Override
+        public void update(View root, WindowManager.LayoutParams params) {
+            windowManager.updateViewLayout(root, params);
+        }
+
+        @Override
+        public void remove(View root) {
+            removeOverlayWindow(root);
+        }
+    };
+    private boolean isPopupClosing = false;
+
+    // Popup open latency: tap to first pre-draw of the attached popup
+    private long popupOpenStartNanos = 0L;
+    private boolean popupOpenWasCold = false;
+    private android.view.ViewTreeObserver.OnPreDrawListener popupPreDrawListener;
+
+    // Metric timestamps (System.nanoTime), zero when nothing is pending
+    private long showRequestedAtNanos = 0L;
+    private long bubbleTapNanos = 0L;
+    private long popupVisibleNanos = 0L;
     
+    private final CommandBinder binder = new CommandBinder();
+    private volatile boolean isDestroyed = false;
+
+    // In-process command channel for the module. All methods must be called on the main thread.
+    final class CommandBinder extends android.os.Binder {
+        // Bindings outlive a stopped service, so callers check this before using it
+        boolean isAlive() {
+            return !isDestroyed;
+        }
+
+        // Returns false when the offer did not fit in the queue
+        boolean show(Offer offer, long requestedAtNanos) {
+            return handleShow(offer, requestedAtNanos);
+        }
+
+        // Returns false when no queued offer matches the update
+        boolean update(Intent fields) {
+            return floatingView != null && applyOfferUpdate(fields);
+        }
+
+        void hide() {
+            stopSelf();
+        }
+
+        // Returns false when the bubble could not be built
+        boolean prewarm() {
+            return enterStandby();
+        }
+    }
+
+    // The offer the popup shows, or else the one the bubble stands for
+    private String currentOfferId() {
+        Offer offer = isPopupAttached && currentOffer != null ? currentOffer : offerQueue.peek();
+        return offer != null ? offer.id : null;
+    }
+
+    // Swaps in a new shared snapshot when something it covers changed, and tells JS.
+    // While no JS runtime is attached only the snapshot moves; the module sends the
+    // latest one when a runtime attaches, so the event buffer is kept for real events.
+    private void publishState() {
+        boolean hasBubble = floatingView != null && bubbleParams != null;
+        BubbleState published = BubbleState.publish(new BubbleState(
+            !isDestroyed,
+            hasBubble && !isStandby,
+            hasBubble && isStandby,
+            isPopupAttached && !isPopupClosing,
+            currentOfferId(),
+            offerQueue.size(),
+            hasBubble,
+            hasBubble ? bubbleParams.x : 0,
+            hasBubble ? bubbleParams.y : 0,
+            0L
+        ));
+        if (published != null && BubbleEventBus.get().hasEmitter()) {
+            BubbleEventBus.get().publishState(published);
+        }
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
     }
     
     @Override
     public void onCreate() {
         super.onCreate();
         windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
+        updateGeometry();
+
+        // 1/32 of the heap, capped at 4MB; a 140px ARGB icon is about 77KB
+        int iconCacheBytes = (int) Math.min(4L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32);
+        iconLoader = new IconLoader(this, iconCacheBytes);
+        popupTextCache = new PopupTextCache(getResources().getDisplayMetrics());
+
+        expiryWheel = new ExpiryWheel(new ExpiryWheel.Listener() {
+            @Override
+            public void onExpired(String offerId) {
+                onOfferExpired(offerId);
+            }
+        });
+
+        // Whatever the previous instance left behind, read before the first frame
+        journal = new BubbleJournal(this, MAX_PENDING_OFFERS);
+        restoredState = journal.restore();
+        if (restoredState != null) {
+            long now = System.currentTimeMillis();
+            for (Offer offer : restoredState.offers) {
+                if (offer.receivedAt == 0L) {
+                    offer.receivedAt = now; // Journaled before arrival times were kept
+                }
+                // Replay already applied the same capacity, so nothing is left out here
+                if (offerQueue.offer(offer) == null) {
+                    // Offers that lapsed while the process was dead go on the first tick
+                    expiryWheel.schedule(offer.id, offer.expiresAt);
+                }
+            }
+            android.util.Log.d("FloatingBubble", "Restored " + offerQueue.size() + " offers from journal");
+        }
         
         // Get event emitter from module registry
         try {
@@ -58,389 +244,897 @@ public class FloatingBubbleService extends Service {
         }
     }
     
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        trimMemory(MemoryTrimPolicy.LOW_MEMORY);
+    }
+
+    // Sheds what the level's tier allows; everything dropped is rebuilt on the next tap or drag
+    private void trimMemory(int level) {
+        if (isDestroyed || iconLoader == null) {
+            return;
+        }
+        int tier = MemoryTrimPolicy.tierFor(level);
+        long iconBytes = 0L;
+        long popupBytes = 0L;
+        long textBytes = 0L;
+        long overlayBytes = 0L;
+        try {
+            if (tier >= MemoryTrimPolicy.TIER_CACHES) {
+                iconBytes = iconLoader.trim(MemoryTrimPolicy.iconLevel(level));
+            }
+            if (tier >= MemoryTrimPolicy.TIER_POPUP) {
+                popupBytes = dropPopupTree();
+                textBytes = popupTextCache.trim();
+            }
+            if (tier >= MemoryTrimPolicy.TIER_MINIMAL) {
+                overlayBytes = collapseOverlayLayers();
+            }
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to trim memory: " + e.getMessage());
+        }
+        long freed = iconBytes + popupBytes + textBytes + overlayBytes;
+        int index = MemoryTrimPolicy.metricsIndex(level);
+        BubbleMetrics.trimmed(index, freed);
+        android.util.Log.d("FloatingBubble", "Trim " + BubbleMetrics.TRIM_LEVELS[index] + " (" + level + "): freed "
+            + freed + " bytes (icons " + iconBytes + ", popup " + popupBytes + ", text " + textBytes
+            + ", overlays " + overlayBytes + ")");
+    }
+
+    // Only a detached tree goes; an open popup is in use. ensurePopupHolder builds it again
+    private long dropPopupTree() {
+        if (popupHolder == null || isPopupAttached) {
+            return 0L;
+        }
+        long bytes = MemoryTrimPolicy.viewTreeBytes(popupHolder.root);
+        popupHolder.content.animate().cancel();
+        popupHolder = null;
+        popupPreDrawListener = null;
+        return bytes;
+    }
+
+    // Back to the bubble window alone, unless a drag or the popup is using the other layers.
+    // The compositor is kept and adds its window again on the next show
+    private long collapseOverlayLayers() {
+        if (isPopupAttached || (deleteAreaView != null && deleteAreaView.getVisibility() == View.VISIBLE)) {
+            return 0L;
+        }
+        long bytes = MemoryTrimPolicy.viewTreeBytes(deleteAreaView);
+        dropDeleteArea();
+        if (compositor != null) {
+            compositor.release();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void onConfigurationChanged(android.content.res.Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // Where the bubble sits across its range, carried over to the new range
+        float fractionX = bubbleParams != null ? geometry.fractionX(bubbleParams.x) : 0f;
+        float fractionY = bubbleParams != null ? geometry.fractionY(bubbleParams.y) : 0f;
+        int previousBubbleSize = geometry.bubbleSize;
+        int previousIconSize = geometry.iconSize;
+        if (updateGeometry()) {
+            relayoutForGeometry(fractionX, fractionY,
+                geometry.bubbleSize != previousBubbleSize, geometry.iconSize != previousIconSize);
+        }
+    }
+
+    // Display size, density and insets only change with the configuration, so hot paths read the cached model
+    private boolean updateGeometry() {
+        safeArea.read(this, windowManager);
+        if (!geometry.update(safeArea.width, safeArea.height, getResources().getDisplayMetrics().density,
+            safeArea.left, safeArea.top, safeArea.right, safeArea.bottom)) {
+            return false;
+        }
+        android.util.Log.d("FloatingBubble", "Geometry updated: " + geometry.screenWidth + "x" + geometry.screenHeight
+            + " @" + geometry.density + "x, insets " + geometry.insetLeft + "," + geometry.insetTop
+            + "," + geometry.insetRight + "," + geometry.insetBottom);
+        return true;
+    }
+
+    // Moves and resizes the existing windows for the new geometry; no view is rebuilt
+    private void relayoutForGeometry(float fractionX, float fractionY, boolean sizesChanged, boolean iconSizeChanged) {
+        try {
+            if (floatingView != null && bubbleParams != null) {
+                cancelSnapAnimation();
+                if (sizesChanged) {
+                    applyBubbleSizes();
+                }
+                if (iconSizeChanged && bubbleIconView != null && bubbleIconView.getTag() instanceof String) {
+                    applyIcon(bubbleIconView, (String) bubbleIconView.getTag());
+                }
+                // Same place across the new range, then onto the edge it was docked on
+                geometry.snapTarget(geometry.xAt(fractionX), geometry.yAt(fractionY), snapTarget);
+                bubbleParams.x = snapTarget[0];
+                bubbleParams.y = snapTarget[1];
+                windowManager.updateViewLayout(floatingView, bubbleParams);
+                if (!isStandby) {
+                    journal.putPosition(bubbleParams.x, bubbleParams.y);
+                }
+                moveThrottle.settle(bubbleParams.x, bubbleParams.y);
+            }
+            if (deleteAreaView != null && compositor == null && deleteParams != null) {
+                applyDeleteAreaGeometry(deleteParams);
+                windowManager.updateViewLayout(deleteAreaView, deleteParams);
+            }
+            if (compositor != null) {
+                compositor.onGeometryChanged();
+            }
+            if (popupHolder != null) {
+                popupHolder.setPopupWidth(geometry.popupWidth);
+            }
+            publishState();
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to relayout for new geometry: " + e.getMessage());
+        }
+    }
+
+    // Bubble child sizes from the geometry; on creation and when the density changes
+    private void applyBubbleSizes() {
+        android.view.ViewGroup.LayoutParams layoutParams = floatingView.getLayoutParams();
+        layoutParams.width = geometry.bubbleSize;
+        layoutParams.height = geometry.bubbleSize;
+        floatingView.setLayoutParams(layoutParams);
+
+        RelativeLayout.LayoutParams iconParams = (RelativeLayout.LayoutParams) bubbleIconView.getLayoutParams();
+        iconParams.width = geometry.iconSize;
+        iconParams.height = geometry.iconSize;
+        bubbleIconView.setLayoutParams(iconParams);
+
+        RelativeLayout.LayoutParams ringParams = (RelativeLayout.LayoutParams) countdownRing.getLayoutParams();
+        ringParams.width = geometry.ringSize;
+        ringParams.height = geometry.ringSize;
+        countdownRing.setLayoutParams(ringParams);
+
+        RelativeLayout.LayoutParams badgeParams = (RelativeLayout.LayoutParams) badgeView.getLayoutParams();
+        badgeParams.width = geometry.badgeSize;
+        badgeParams.height = geometry.badgeSize;
+        badgeParams.setMargins(geometry.badgeMargin, geometry.badgeMargin, 0, 0);
+        badgeView.setLayoutParams(badgeParams);
+        badgeView.setPadding(geometry.badgeMargin, geometry.badgeMargin / 3, geometry.badgeMargin, geometry.badgeMargin / 3);
+        if (badgeView.getBackground() instanceof GradientDrawable) {
+            ((GradientDrawable) badgeView.getBackground()).setCornerRadius(geometry.badgeSize / 2f);
+        }
+        if (deleteHighlightBackground instanceof GradientDrawable) {
+            ((GradientDrawable) deleteHighlightBackground).setStroke(geometry.highlightStroke, Color.parseColor("#FF4444"));
+        }
+    }
+    
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         android.util.Log.d("FloatingBubble", "onStartCommand called");
+        // Updates sent before the module's binding connected; later ones arrive over the binder
+        if (intent != null && ACTION_UPDATE.equals(intent.getAction())) {
+            if (floatingView == null) {
+                // Nothing to update; do not leave a bubble-less service running
+                android.util.Log.d("FloatingBubble", "Update received without a bubble, stopping");
+                stopSelf(startId);
+                return START_NOT_STICKY;
+            }
+            applyOfferUpdate(intent);
+            return START_STICKY;
+        }
+        if (intent != null && ACTION_PREWARM.equals(intent.getAction())) {
+            enterStandby();
+            // Later shows arrive over the binder and never reach here, so stickiness is decided now.
+            // A restart with nothing journaled stops itself below.
+            return START_STICKY;
+        }
+        if (intent == null && restoredState == null && floatingView == null) {
+            // Sticky restart with nothing journaled, e.g. the bubble had been hidden
+            android.util.Log.d("FloatingBubble", "Sticky restart without saved state, stopping");
+            stopSelf(startId);
+            return START_NOT_STICKY;
+        }
+        Offer offer = intent != null ? Offer.fromIntent(intent) : null;
+        handleShow(offer, intent != null ? intent.getLongExtra("requestedAtNanos", 0L) : 0L);
+        return START_STICKY;
+    }
+
+    // Shared by startService and the bound channel; offer may be null on a sticky restart
+    private boolean handleShow(Offer offer, long requestedAtNanos) {
+        boolean queued = false;
+        if (offer != null && offer.expiresAt > 0L && offer.expiresAt <= System.currentTimeMillis()) {
+            android.util.Log.d("FloatingBubble", "Offer already expired on arrival: " + offer.id);
+            BubbleMetrics.offersExpired.incrementAndGet();
+            publishOfferEvent(BubbleEventBus.OFFER_EXPIRED, offer);
+            offer = null;
+        }
+        if (offer != null) {
+            offer.receivedAt = System.currentTimeMillis();
+            Offer leftOut = offerQueue.offer(offer);
+            if (leftOut != offer) {
+                android.util.Log.d("FloatingBubble", "Offer queued: " + offer.id + " (pending: " + offerQueue.size() + ")");
+                if (leftOut != null) {
+                    onOfferEvicted(leftOut);
+                }
+                // Also replaces or clears the deadline of an offer re-sent with the same id
+                expiryWheel.schedule(offer.id, offer.expiresAt);
+                journal.putOffer(offer);
+                preparePopupText(offer);
+                if (isPopupAttached && currentOffer != null && offer.id.equals(currentOffer.id)) {
+                    // Re-sent while on screen: the popup, updates, expiry and accept follow the new entry
+                    currentOffer = offer;
+                    popupHolder.bind(offer);
+                }
+                showRequestedAtNanos = requestedAtNanos;
+                queued = true;
+            } else {
+                android.util.Log.d("FloatingBubble", "Offer queue full, dropped: " + offer.id);
+                BubbleMetrics.droppedShowRequests.incrementAndGet();
+            }
+        }
         if (floatingView == null) {
             android.util.Log.d("FloatingBubble", "Creating floating bubble");
-            createFloatingBubble(intent);
+            createFloatingBubble();
+        } else if (isStandby) {
+            if (!offerQueue.isEmpty()) {
+                leaveStandby();
+            }
         } else {
-            android.util.Log.d("FloatingBubble", "Bubble already exists");
+            android.util.Log.d("FloatingBubble", "Bubble already exists, updating badge");
+            updateBadge();
+            updateCountdownRing();
+            // Make sure a frame is drawn so show-to-first-frame gets recorded
+            floatingView.invalidate();
         }
-        return START_STICKY;
+        publishState();
+        return queued;
     }
     
-    private void createFloatingBubble(Intent intent) {
-        // Basic bubble parameters
-        String title = intent != null ? intent.getStringExtra("title") : "New Order";
-        String subtitle = intent != null ? intent.getStringExtra("subtitle") : "Tap to view details";
-        boolean showBadge = intent != null ? intent.getBooleanExtra("showBadge", true) : true;
-        int badgeCount = intent != null ? intent.getIntExtra("badgeCount", 1) : 1;
-        String iconName = intent != null ? intent.getStringExtra("icon") : "tylo_circle";
-        
-        // Store popup data from intent
-        if (intent != null) {
-            // Try to get popup data from intent
-            String intentPopupTitle = intent.getStringExtra("popupTitle");
-            String intentPopupPrice = intent.getStringExtra("popupPrice");
-            String intentPopupDuration = intent.getStringExtra("popupDuration");
-            String intentPopupDistance = intent.getStringExtra("popupDistance");
-            String intentPopupPickupAddress = intent.getStringExtra("popupPickupAddress");
-            String intentPopupDestinationAddress = intent.getStringExtra("popupDestinationAddress");
-            
-            android.util.Log.d("FloatingBubble", "Intent popupTitle: " + intentPopupTitle);
-            android.util.Log.d("FloatingBubble", "Intent popupPrice: " + intentPopupPrice);
-            android.util.Log.d("FloatingBubble", "Intent popupDuration: " + intentPopupDuration);
-            android.util.Log.d("FloatingBubble", "Intent popupDistance: " + intentPopupDistance);
-            android.util.Log.d("FloatingBubble", "Intent popupPickupAddress: " + intentPopupPickupAddress);
-            android.util.Log.d("FloatingBubble", "Intent popupDestinationAddress: " + intentPopupDestinationAddress);
-            
-            // Use intent data if available, otherwise use hardcoded defaults
-            if (intentPopupTitle != null && !intentPopupTitle.isEmpty()) {
-                popupTitle = intentPopupTitle;
-            }
-            if (intentPopupPrice != null && !intentPopupPrice.isEmpty()) {
-                popupPrice = intentPopupPrice;
-            }
-            if (intentPopupDuration != null && !intentPopupDuration.isEmpty()) {
-                popupDuration = intentPopupDuration;
-            }
-            if (intentPopupDistance != null && !intentPopupDistance.isEmpty()) {
-                popupDistance = intentPopupDistance;
-            }
-            if (intentPopupPickupAddress != null && !intentPopupPickupAddress.isEmpty()) {
-                popupPickupAddress = intentPopupPickupAddress;
+    // Everything a show needs is built and attached now, so the show itself only
+    // binds the offer and makes the bubble window opaque
+    private boolean enterStandby() {
+        if (floatingView != null) {
+            return true; // Already warm, or already showing
+        }
+        if (!offerQueue.isEmpty()) {
+            // Journaled offers from a restart: show them instead of waiting
+            handleShow(null, 0L);
+            return floatingView != null;
+        }
+        try {
+            isStandby = true;
+            createFloatingBubble();
+            if (compositor != null && deleteAreaView == null) {
+                // Compositor mode otherwise builds it on the first drag
+                deleteAreaView = buildDeleteAreaView();
             }
-            if (intentPopupDestinationAddress != null && !intentPopupDestinationAddress.isEmpty()) {
-                popupDestinationAddress = intentPopupDestinationAddress;
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to enter standby: " + e.getMessage());
+        }
+        if (floatingView == null) {
+            isStandby = false;
+            return false;
+        }
+        android.util.Log.d("FloatingBubble", "Standby: bubble attached and hidden");
+        publishState();
+        return true;
+    }
+
+    // One window update: bind the head offer, then opaque and touchable
+    private void leaveStandby() {
+        try {
+            isStandby = false;
+            Offer head = offerQueue.peek();
+            if (head != null && head.icon != null && !head.icon.equals(bubbleIconView.getTag())) {
+                applyIcon(bubbleIconView, head.icon);
             }
+            updateBadge();
+            updateCountdownRing();
+            bubbleParams.alpha = 1f;
+            bubbleParams.flags &= ~WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+            windowManager.updateViewLayout(floatingView, bubbleParams);
+            journal.putPosition(bubbleParams.x, bubbleParams.y);
+            BubbleMetrics.warmShows.incrementAndGet();
+            android.util.Log.d("FloatingBubble", "Standby bubble shown");
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to leave standby: " + e.getMessage());
         }
+    }
+
+    private void createFloatingBubble() {
+        // Bubble appearance follows the best pending offer
+        Offer head = offerQueue.peek();
+        String iconName = head != null ? head.icon : "tylo_circle";
         
-        android.util.Log.d("FloatingBubble", "Final popup data:");
-        android.util.Log.d("FloatingBubble", "Popup Title: " + popupTitle);
-        android.util.Log.d("FloatingBubble", "Popup Price: " + popupPrice);
-        android.util.Log.d("FloatingBubble", "Popup Duration: " + popupDuration);
-        android.util.Log.d("FloatingBubble", "Popup Distance: " + popupDistance);
-        android.util.Log.d("FloatingBubble", "Popup Pickup: " + popupPickupAddress);
-        android.util.Log.d("FloatingBubble", "Popup Destination: " + popupDestinationAddress);
-        
-        // Get screen dimensions
-        android.util.DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
-        int screenWidth = displayMetrics.widthPixels;
-        int screenHeight = displayMetrics.heightPixels;
-        
-        // Create bubble layout
+        // Create bubble layout; all sizes come from the geometry (applyBubbleSizes)
         RelativeLayout bubbleLayout = new RelativeLayout(this);
-        bubbleLayout.setLayoutParams(new android.view.ViewGroup.LayoutParams(180, 180));
+        bubbleLayout.setLayoutParams(new android.view.ViewGroup.LayoutParams(geometry.bubbleSize, geometry.bubbleSize));
         
         // Create icon ImageView
         ImageView iconView = new ImageView(this);
-        RelativeLayout.LayoutParams iconParams = new RelativeLayout.LayoutParams(140, 140);
+        RelativeLayout.LayoutParams iconParams = new RelativeLayout.LayoutParams(geometry.iconSize, geometry.iconSize);
         iconParams.addRule(RelativeLayout.CENTER_IN_PARENT);
         iconView.setLayoutParams(iconParams);
         iconView.setScaleType(ImageView.ScaleType.FIT_CENTER);
         
         // Set icon with fallback background color
-        try {
-            int resourceId = getResources().getIdentifier(iconName, "drawable", getPackageName());
-            if (resourceId != 0) {
-                iconView.setImageResource(resourceId);
-            } else {
-                // Fallback to colored background
-                GradientDrawable fallbackIcon = new GradientDrawable();
-                fallbackIcon.setShape(GradientDrawable.OVAL);
-                fallbackIcon.setColor(Color.parseColor("#FF6B35")); // Orange color
-                iconView.setBackground(fallbackIcon);
-                iconView.setImageResource(android.R.drawable.ic_dialog_info); // Default Android icon
-            }
-        } catch (Exception e) {
-            // Fallback to colored background
-            GradientDrawable fallbackIcon = new GradientDrawable();
-            fallbackIcon.setShape(GradientDrawable.OVAL);
-            fallbackIcon.setColor(Color.parseColor("#FF6B35")); // Orange color
-            iconView.setBackground(fallbackIcon);
-            iconView.setImageResource(android.R.drawable.ic_dialog_info); // Default Android icon
-        }
+        applyIcon(iconView, iconName);
         
         bubbleLayout.addView(iconView);
+        bubbleIconView = iconView;
+
+        // Countdown ring around the icon, hidden unless the head offer has a deadline
+        CountdownRingView ring = new CountdownRingView(this);
+        RelativeLayout.LayoutParams ringParams = new RelativeLayout.LayoutParams(geometry.ringSize, geometry.ringSize);
+        ringParams.addRule(RelativeLayout.CENTER_IN_PARENT);
+        ring.setLayoutParams(ringParams);
+        bubbleLayout.addView(ring);
+        countdownRing = ring;
+        updateCountdownRing();
         
-        // Create badge if needed
-        TextView badge = null;
-        if (showBadge && badgeCount > 0) {
-            badge = new TextView(this);
-            badge.setText(badgeCount > 99 ? "99+" : String.valueOf(badgeCount));
-            badge.setTextColor(Color.WHITE);
-            badge.setTextSize(9f);
-            badge.setGravity(Gravity.CENTER);
-            badge.setIncludeFontPadding(false);
-            badge.setPadding(6, 2, 6, 2);
-            
-            // Position badge directly on top-right of icon
-            RelativeLayout.LayoutParams badgeParams = new RelativeLayout.LayoutParams(24, 24);
-            badgeParams.addRule(RelativeLayout.ALIGN_TOP, iconView.getId());
-            badgeParams.addRule(RelativeLayout.ALIGN_END, iconView.getId());
-            // setMargins(left, top, right, bottom)
-            // Kiri, Atas, Kanan, Bawah
-            badgeParams.setMargins(6, 6, 0, 0); // kiri: -12, atas: -12, kanan: 0, bawah: 0
-            badge.setLayoutParams(badgeParams);
-            
-            // Badge background
-            GradientDrawable badgeBackground = new GradientDrawable();
-            badgeBackground.setColor(Color.parseColor("#FF4444"));
-            badgeBackground.setCornerRadius(12f); // Half of width/height for perfect circle
-            badge.setBackground(badgeBackground);
-            
-            bubbleLayout.addView(badge);
-        }
+        // Create badge, shown or hidden by updateBadge() as the queue changes
+        TextView badge = new TextView(this);
+        badge.setTextColor(Color.WHITE);
+        badge.setTextSize(9f);
+        badge.setGravity(Gravity.CENTER);
+        badge.setIncludeFontPadding(false);
+        
+        // Position badge directly on top-right of icon; size, padding and margins set by applyBubbleSizes
+        RelativeLayout.LayoutParams badgeParams = new RelativeLayout.LayoutParams(geometry.badgeSize, geometry.badgeSize);
+        badgeParams.addRule(RelativeLayout.ALIGN_TOP, iconView.getId());
+        badgeParams.addRule(RelativeLayout.ALIGN_END, iconView.getId());
+        badge.setLayoutParams(badgeParams);
+        
+        // Badge background; corner radius is half the badge size for a perfect circle
+        GradientDrawable badgeBackground = new GradientDrawable();
+        badgeBackground.setColor(Color.parseColor("#FF4444"));
+        badge.setBackground(badgeBackground);
+        
+        bubbleLayout.addView(badge);
+        badgeView = badge;
+        updateBadge();
         
         floatingView = bubbleLayout;
         
+        // Show request to first bubble frame; the window stays attached until deleted
+        bubbleLayout.getViewTreeObserver().addOnPreDrawListener(new android.view.ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (showRequestedAtNanos != 0L) {
+                    BubbleMetrics.showToFirstFrame.recordSinceNanos(showRequestedAtNanos);
+                    showRequestedAtNanos = 0L;
+                }
+                return true;
+            }
+        });
+        
+        // Delete-zone feedback drawables, swapped during drags instead of rebuilt
+        android.graphics.drawable.GradientDrawable borderDrawable = new android.graphics.drawable.GradientDrawable();
+        borderDrawable.setShape(android.graphics.drawable.GradientDrawable.OVAL);
+        borderDrawable.setColor(Color.TRANSPARENT);
+        deleteHighlightBackground = borderDrawable; // Red border, stroke width set by applyBubbleSizes
+        bubbleNormalBackground = new android.graphics.drawable.ColorDrawable(Color.TRANSPARENT);
+        applyBubbleSizes();
+        
         // Set up window parameters
         int layoutFlag = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
             ? WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY
             : WindowManager.LayoutParams.TYPE_PHONE;
         
+        // Positions are in full-display coordinates, the same space as the safe-area insets
         final WindowManager.LayoutParams params = new WindowManager.LayoutParams(
             WindowManager.LayoutParams.WRAP_CONTENT,
             WindowManager.LayoutParams.WRAP_CONTENT,
             layoutFlag,
-            WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE,
+            WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
+                | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
             PixelFormat.TRANSLUCENT
         );
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            params.layoutInDisplayCutoutMode = WindowManager.LayoutParams.LAYOUT_IN_DISPLAY_CUTOUT_MODE_SHORT_EDGES;
+        }
         
-        // Position bubble at right center of screen initially
+        // Docked on the right edge, vertically centered, or where it was before a restart
         params.gravity = Gravity.TOP | Gravity.START;
-        params.x = screenWidth - 56 - 20; // Right side with 20px margin
-        params.y = (screenHeight - 56) / 2; // Center vertically
+        geometry.snapTarget(geometry.screenWidth, geometry.screenHeight / 2 - geometry.bubbleRadius, snapTarget);
+        params.x = snapTarget[0];
+        params.y = snapTarget[1];
+        if (restoredState != null && restoredState.hasPosition) {
+            params.x = geometry.clampX(restoredState.x);
+            params.y = geometry.clampY(restoredState.y);
+        }
+        restoredState = null;
+        bubbleParams = params;
+        if (isStandby) {
+            // Attached and drawn, but see-through and untouchable; not journaled until shown
+            params.alpha = 0f;
+            params.flags |= WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        } else {
+            journal.putPosition(params.x, params.y);
+        }
         
         // Add touch handling
-        int[] initialX = {0};
-        int[] initialY = {0};
-        float[] initialTouchX = {0f};
-        float[] initialTouchY = {0f};
-        boolean[] isDragging = {false};
-        
+        gestureRecognizer = BubbleGestureRecognizer.create(this, new BubbleGestureListener());
         bubbleLayout.setOnTouchListener(new View.OnTouchListener() {
             @Override
             public boolean onTouch(View v, MotionEvent event) {
-                switch (event.getAction()) {
-                    case MotionEvent.ACTION_DOWN:
-                        initialX[0] = params.x;
-                        initialY[0] = params.y;
-                        initialTouchX[0] = event.getRawX();
-                        initialTouchY[0] = event.getRawY();
-                        isDragging[0] = false;
-                        return true;
-                        
-                    case MotionEvent.ACTION_MOVE:
-                        if (isExpanded) {
-                            return true;
-                        }
-                        
-                        float deltaX = event.getRawX() - initialTouchX[0];
-                        float deltaY = event.getRawY() - initialTouchY[0];
-                        double distance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-                        
-                        if (distance > 15) {
-                            isDragging[0] = true;
-                            
-                            params.x = initialX[0] + (int) deltaX;
-                            params.y = initialY[0] + (int) deltaY;
-                            
-                            // Keep bubble within screen bounds
-                            params.x = Math.max(0, Math.min(params.x, screenWidth - 100));
-                            params.y = Math.max(0, Math.min(params.y, screenHeight - 100));
-                            
-                            windowManager.updateViewLayout(floatingView, params);
-                            
-                            // Show delete area when dragging
-                            showDeleteArea();
-                            
-                            // Check if bubble is in delete area
-                            checkDeleteArea(params);
-                        }
-                        return true;
-                        
-                    case MotionEvent.ACTION_UP:
-                        if (!isDragging[0]) {
-                            // Quick tap - add bubble click animation then show popup
-                            animateBubbleClick();
-                        } else {
-                            // Check if bubble should be deleted
-                            if (isInDeleteArea(params)) {
-                                deleteBubble();
-                            } else {
-                                // Snap to edge
-                                snapToEdge(params);
-                            }
-                        }
-                        
-                        // Hide delete area
-                        hideDeleteArea();
-                        return true;
-                        
-                    default:
-                        return false;
-                }
+                trackVelocity(event);
+                return gestureRecognizer.onTouchEvent(event);
             }
         });
         
                try {
-                   windowManager.addView(floatingView, params);
+                   addOverlayWindow(floatingView, params);
                    android.util.Log.d("FloatingBubble", "Bubble added successfully to window manager");
                    
-                   // Create delete area
-                   createDeleteArea();
+                   // Create delete area; the compositor only builds it once a drag starts
+                   if (useCompositor) {
+                       compositor = new OverlayCompositor(this, overlayWindows, geometry);
+                   } else {
+                       createDeleteArea();
+                   }
+
+                   // Popup tree is built off the tap path
+                   prebuildPopupWhenIdle();
                } catch (Exception e) {
                    android.util.Log.e("FloatingBubble", "Failed to add bubble to window manager: " + e.getMessage());
                    e.printStackTrace();
                }
     }
-    
-    private void snapToEdge(WindowManager.LayoutParams params) {
-        android.util.DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
-        int screenWidth = displayMetrics.widthPixels;
-        int screenHeight = displayMetrics.heightPixels;
-        int bubbleWidth = 100;
-        
-        // Determine which edge is closest
-        int distanceToLeft = params.x;
-        int distanceToRight = screenWidth - params.x - bubbleWidth;
-        int distanceToTop = params.y;
-        int distanceToBottom = screenHeight - params.y - bubbleWidth;
-        
-        int minDistance = Math.min(Math.min(distanceToLeft, distanceToRight), 
-                                 Math.min(distanceToTop, distanceToBottom));
-        
-        int targetX, targetY;
-        
-        if (minDistance == distanceToLeft) {
-            targetX = 20;
-            targetY = Math.max(50, Math.min(params.y, screenHeight - 150));
-        } else if (minDistance == distanceToRight) {
-            targetX = screenWidth - bubbleWidth - 20;
-            targetY = Math.max(50, Math.min(params.y, screenHeight - 150));
-        } else if (minDistance == distanceToTop) {
-            targetX = Math.max(50, Math.min(params.x, screenWidth - 150));
-            targetY = 50;
-        } else { // distanceToBottom
-            targetX = Math.max(50, Math.min(params.x, screenWidth - 150));
-            targetY = screenHeight - bubbleWidth - 50;
+
+    // Bubble gestures, on the main thread; positions come from the window's place at the down
+    private final class BubbleGestureListener implements BubbleGestureRecognizer.Listener {
+        private int initialX;
+        private int initialY;
+
+        @Override
+        public void onDown() {
+            // Take over from any in-flight snap instead of fighting it
+            cancelSnapAnimation();
+            gestureRecognizer.setDoubleTapEnabled(detectDoubleTap);
+            initialX = bubbleParams.x;
+            initialY = bubbleParams.y;
+            resetDragCounters();
+        }
+
+        @Override
+        public boolean onDragStart() {
+            // While the popup is open, a touch on the bubble stays a tap
+            return !isPopupAttached || isPopupClosing;
+        }
+
+        @Override
+        public void onDrag(float deltaX, float deltaY) {
+            // Keep bubble within screen bounds; only the latest target is applied, on the next frame
+            scheduleDragFrame(geometry.clampX(initialX + (int) deltaX), geometry.clampY(initialY + (int) deltaY));
+        }
+
+        @Override
+        public void onDragEnd() {
+            // Land on the final finger position before deciding delete or snap
+            flushDragFrame();
+            logDragCounters();
+            if (isInDeleteArea(bubbleParams)) {
+                deleteBubble();
+            } else {
+                // Fling toward the edge picked from the release velocity
+                velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+                snapToEdge(bubbleParams, velocityTracker.getXVelocity(), velocityTracker.getYVelocity());
+            }
+            hideDeleteArea();
+        }
+
+        @Override
+        public void onTap() {
+            // Quick tap - add bubble click animation then show popup
+            bubbleTapNanos = System.nanoTime();
+            animateBubbleClick();
+        }
+
+        @Override
+        public void onDoubleTap() {
+            BubbleEventBus.get().publish(BubbleEventBus.BUBBLE_DOUBLE_TAP);
+        }
+
+        @Override
+        public void onLongPress() {
+            triggerHapticFeedback();
+            BubbleEventBus.get().publish(BubbleEventBus.BUBBLE_LONG_PRESS);
+        }
+
+        @Override
+        public void onCancel(boolean wasDragging) {
+            if (!wasDragging) {
+                return;
+            }
+            // No drop on a cancelled drag: back onto an edge, delete zone and highlight cleared
+            flushDragFrame();
+            logDragCounters();
+            if (wasInDeleteArea) {
+                resetBubbleAppearance();
+                wasInDeleteArea = false;
+            }
+            hideDeleteArea();
+            snapToEdge(bubbleParams, 0f, 0f);
         }
-        
-        // Smooth animation to edge
-        animateToPosition(targetX, targetY, params);
     }
-    
-    private void animateToPosition(int targetX, int targetY, WindowManager.LayoutParams params) {
+
+    private void scheduleDragFrame(int targetX, int targetY) {
+        pendingDragX = targetX;
+        pendingDragY = targetY;
+        dragMoveEvents++;
+        if (!isDragFrameScheduled) {
+            isDragFrameScheduled = true;
+            android.view.Choreographer.getInstance().postFrameCallback(dragFrameCallback);
+        }
+    }
+
+    // Applies a pending drag target right away, e.g. on ACTION_UP
+    private void flushDragFrame() {
+        if (isDragFrameScheduled) {
+            android.view.Choreographer.getInstance().removeFrameCallback(dragFrameCallback);
+            applyDragFrame();
+        }
+    }
+
+    // One relayout and one delete-zone evaluation per display frame
+    private void applyDragFrame() {
+        isDragFrameScheduled = false;
+        if (floatingView == null || bubbleParams == null) {
+            return;
+        }
         try {
-            // Create smooth animation using ValueAnimator
-            android.animation.ValueAnimator animatorX = android.animation.ValueAnimator.ofInt(params.x, targetX);
-            android.animation.ValueAnimator animatorY = android.animation.ValueAnimator.ofInt(params.y, targetY);
+            dragFrames++;
+            if (bubbleParams.x != pendingDragX || bubbleParams.y != pendingDragY) {
+                bubbleParams.x = pendingDragX;
+                bubbleParams.y = pendingDragY;
+                windowManager.updateViewLayout(floatingView, bubbleParams);
+                dragRelayouts++;
+                publishBubbleMoved(true);
+            }
             
-            animatorX.setDuration(300); // 300ms animation
-            animatorY.setDuration(300);
+            // Show delete area when dragging
+            showDeleteArea();
             
-            animatorX.addUpdateListener(new android.animation.ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(android.animation.ValueAnimator animation) {
-                    params.x = (int) animation.getAnimatedValue();
-                    try {
-                        windowManager.updateViewLayout(floatingView, params);
-                    } catch (Exception e) {
-                        android.util.Log.e("FloatingBubble", "Animation update failed: " + e.getMessage());
-                    }
+            // Check if bubble is in delete area
+            checkDeleteArea(bubbleParams);
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Drag frame failed: " + e.getMessage());
+        }
+    }
+
+    private void resetDragCounters() {
+        dragMoveEvents = 0;
+        dragFrames = 0;
+        dragRelayouts = 0;
+    }
+
+    private void logDragCounters() {
+        if (dragMoveEvents == 0) {
+            return;
+        }
+        BubbleMetrics.drags.incrementAndGet();
+        BubbleMetrics.dragFrames.addAndGet(dragFrames);
+        BubbleMetrics.dragRelayouts.addAndGet(dragRelayouts);
+        BubbleMetrics.relayoutsPerDrag.record(dragRelayouts);
+        android.util.Log.d("FloatingBubble", "Drag: " + dragMoveEvents + " move events, " + dragFrames
+            + " frames, " + dragRelayouts + " relayouts ("
+            + (dragFrames > 0 ? (float) dragRelayouts / dragFrames : 0f) + " per frame)");
+    }
+
+    // Decoded off the main thread; a cached icon is applied immediately
+    private void applyIcon(final ImageView iconView, String iconName) {
+        final String source = iconName != null && !iconName.isEmpty() ? iconName : Offer.DEFAULT_ICON;
+        // Tag the view so a slow decode cannot overwrite a newer icon
+        iconView.setTag(source);
+        iconLoader.load(source, geometry.iconSize, new IconLoader.Callback() {
+            @Override
+            public void onIconLoaded(android.graphics.Bitmap bitmap) {
+                if (source.equals(iconView.getTag())) {
+                    iconView.setBackground(null);
+                    iconView.setImageBitmap(bitmap);
                 }
-            });
-            
-            animatorY.addUpdateListener(new android.animation.ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(android.animation.ValueAnimator animation) {
-                    params.y = (int) animation.getAnimatedValue();
-                    try {
-                        windowManager.updateViewLayout(floatingView, params);
-                    } catch (Exception e) {
-                        android.util.Log.e("FloatingBubble", "Animation update failed: " + e.getMessage());
-                    }
+            }
+
+            @Override
+            public void onIconFailed() {
+                if (source.equals(iconView.getTag())) {
+                    android.util.Log.e("FloatingBubble", "Icon not found, using fallback: " + source);
+                    applyFallbackIcon(iconView);
                 }
-            });
-            
-            // Start animations
-            animatorX.start();
-            animatorY.start();
+            }
+        });
+    }
+
+    private void applyFallbackIcon(ImageView iconView) {
+        // Fallback to colored background
+        GradientDrawable fallbackIcon = new GradientDrawable();
+        fallbackIcon.setShape(GradientDrawable.OVAL);
+        fallbackIcon.setColor(Color.parseColor("#FF6B35")); // Orange color
+        iconView.setBackground(fallbackIcon);
+        iconView.setImageResource(android.R.drawable.ic_dialog_info); // Default Android icon
+    }
+
+    // Mutates a queued offer in place; only the views whose fields changed are touched
+    private boolean applyOfferUpdate(Intent intent) {
+        try {
+            String offerId = intent.getStringExtra("offerId");
+            Offer offer;
+            if (offerId != null) {
+                offer = offerQueue.get(offerId);
+            } else if (isPopupAttached && currentOffer != null) {
+                offer = currentOffer;
+            } else {
+                offer = offerQueue.peek();
+            }
+            if (offer == null) {
+                android.util.Log.d("FloatingBubble", "Update ignored, no matching offer: " + offerId);
+                return false;
+            }
+
+            Offer headBefore = offerQueue.peek();
+            int changed = offer.update(intent);
+            if (changed == 0) {
+                android.util.Log.d("FloatingBubble", "Update for " + offer.id + " changed nothing");
+                return true;
+            }
+
+            if ((changed & Offer.CHANGED_PRIORITY) != 0) {
+                // Same id, so the queue re-sifts the existing entry
+                offerQueue.offer(offer);
+            }
+            if ((changed & Offer.CHANGED_EXPIRY) != 0) {
+                if (offer.expiresAt > 0L && offer.expiresAt <= System.currentTimeMillis()) {
+                    // Moved into the past: expire it now rather than on the next tick
+                    expiryWheel.cancel(offer.id);
+                    onOfferExpired(offer.id);
+                    return true;
+                }
+                expiryWheel.schedule(offer.id, offer.expiresAt);
+            }
+            journal.putOffer(offer);
+            if ((changed & Offer.CHANGED_POPUP) != 0) {
+                preparePopupText(offer);
+            }
+            Offer head = offerQueue.peek();
+            if ((changed & (Offer.CHANGED_BADGE | Offer.CHANGED_PRIORITY)) != 0) {
+                updateBadge();
+            }
+            if ((changed & (Offer.CHANGED_EXPIRY | Offer.CHANGED_PRIORITY)) != 0) {
+                updateCountdownRing();
+            }
+            if (bubbleIconView != null && head != null
+                && (((changed & Offer.CHANGED_ICON) != 0 && offer == head) || head != headBefore)) {
+                applyIcon(bubbleIconView, head.icon);
+            }
+            if ((changed & Offer.CHANGED_POPUP) != 0 && isPopupAttached && offer == currentOffer) {
+                popupHolder.bind(offer);
+            }
+            android.util.Log.d("FloatingBubble", "Offer " + offer.id + " updated in place (changes: " + changed + ")");
+            publishState();
+            return true;
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to update offer: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void updateBadge() {
+        try {
+            if (badgeView == null) {
+                return;
+            }
+            Offer head = offerQueue.peek();
+            int pending = offerQueue.size();
+            // Badge tracks the queue depth once more than one offer is waiting
+            int count = pending > 1 ? pending : (head != null ? head.badgeCount : 0);
+            if (head != null && head.showBadge && count > 0) {
+                badgeView.setText(count > 99 ? "99+" : String.valueOf(count));
+                badgeView.setVisibility(View.VISIBLE);
+            } else {
+                badgeView.setVisibility(View.GONE);
+            }
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to update badge: " + e.getMessage());
+        }
+    }
+
+    // The ring follows the head offer; receivedAt is set for every queued offer
+    private void updateCountdownRing() {
+        if (countdownRing == null) {
+            return;
+        }
+        Offer head = offerQueue.peek();
+        if (head != null && head.expiresAt > 0L) {
+            countdownRing.setDeadline(head.receivedAt, head.expiresAt);
+        } else {
+            countdownRing.setDeadline(0L, 0L);
+        }
+    }
+
+    // A full queue made room for a better offer; the caller was told it was shown, so say it is gone
+    private void onOfferEvicted(Offer offer) {
+        expiryWheel.cancel(offer.id);
+        journal.removeOffer(offer.id);
+        BubbleMetrics.offersEvicted.incrementAndGet();
+        publishOfferEvent(BubbleEventBus.OFFER_DROPPED, offer);
+        android.util.Log.d("FloatingBubble", "Offer queue full, evicted: " + offer.id);
+        if (isPopupAttached && !isPopupClosing && offer == currentOffer) {
+            showNextOfferInPopup();
+        }
+    }
+
+    // Timing wheel callback: the deadline passed while the offer was still pending
+    private void onOfferExpired(String offerId) {
+        try {
+            Offer offer = offerQueue.get(offerId);
+            if (offer == null) {
+                return; // Resolved or evicted since it was scheduled
+            }
+            Offer headBefore = offerQueue.peek();
+            offerQueue.remove(offerId);
+            journal.removeOffer(offerId);
+            BubbleMetrics.offersExpired.incrementAndGet();
+            publishOfferEvent(BubbleEventBus.OFFER_EXPIRED, offer);
+            android.util.Log.d("FloatingBubble", "Offer expired: " + offerId + " (pending: " + offerQueue.size() + ")");
+
+            updateBadge();
+            updateCountdownRing();
+            Offer head = offerQueue.peek();
+            if (bubbleIconView != null && head != null && head != headBefore) {
+                applyIcon(bubbleIconView, head.icon);
+            }
+            if (isPopupAttached && !isPopupClosing && offer == currentOffer) {
+                // The driver is looking at it: move on as if it had been declined
+                showNextOfferInPopup();
+            }
+            publishState();
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to expire offer: " + e.getMessage());
+        }
+    }
+
+    private void snapToEdge(WindowManager.LayoutParams params, float velocityX, float velocityY) {
+        // Pick the edge from where the fling would coast to, not where the finger lifted
+        int restX = geometry.clampX((int) BubblePhysics.projectFling(params.x, velocityX));
+        int restY = geometry.clampY((int) BubblePhysics.projectFling(params.y, velocityY));
+        geometry.snapTarget(restX, restY, snapTarget);
+        
+        // Spring to edge, carrying the release velocity
+        animateToPosition(snapTarget[0], snapTarget[1], params, velocityX, velocityY);
+    }
+    
+    private void animateToPosition(int targetX, int targetY, WindowManager.LayoutParams params, float velocityX, float velocityY) {
+        // A new snap replaces any snap still in flight
+        cancelSnapAnimation();
+        try {
+            // One critically damped spring drives both axes, one layout update per frame
+            physics.springTo(params.x, params.y, velocityX, velocityY, targetX, targetY);
+            lastPhysicsFrameNanos = 0L;
+            android.view.Choreographer.getInstance().postFrameCallback(physicsFrameCallback);
             
-            android.util.Log.d("FloatingBubble", "Animating bubble to position: " + targetX + ", " + targetY);
+            android.util.Log.d("FloatingBubble", "Animating bubble to position: " + targetX + ", " + targetY
+                + " (release velocity " + (int) velocityX + ", " + (int) velocityY + " px/s)");
             
         } catch (Exception e) {
             android.util.Log.e("FloatingBubble", "Animation failed, using direct positioning: " + e.getMessage());
             // Fallback to direct positioning
+            physics.stop();
             params.x = targetX;
             params.y = targetY;
             windowManager.updateViewLayout(floatingView, params);
         }
     }
+
+    private void applyPhysicsFrame(long frameTimeNanos) {
+        if (floatingView == null || bubbleParams == null) {
+            physics.stop();
+            return;
+        }
+        float frameSeconds = lastPhysicsFrameNanos == 0L
+            ? BubblePhysics.STEP_SECONDS
+            : (frameTimeNanos - lastPhysicsFrameNanos) / 1e9f;
+        lastPhysicsFrameNanos = frameTimeNanos;
+        boolean running = physics.advance(frameSeconds);
+        
+        bubbleParams.x = geometry.clampX(Math.round(physics.getX()));
+        bubbleParams.y = geometry.clampY(Math.round(physics.getY()));
+        try {
+            windowManager.updateViewLayout(floatingView, bubbleParams);
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Animation update failed: " + e.getMessage());
+        }
+        if (running) {
+            publishBubbleMoved(false);
+            android.view.Choreographer.getInstance().postFrameCallback(physicsFrameCallback);
+        } else {
+            moveThrottle.settle(bubbleParams.x, bubbleParams.y);
+            journal.putPosition(bubbleParams.x, bubbleParams.y);
+            publishState();
+        }
+    }
+
+    // Rate-limited for JS; the frame only hands over the position
+    private void publishBubbleMoved(boolean dragging) {
+        moveThrottle.move(bubbleParams.x, bubbleParams.y, dragging, bubbleMovedRate);
+    }
+
+    private void publishOfferEvent(String type, Offer offer) {
+        android.os.Bundle payload = new android.os.Bundle();
+        if (offer != null) {
+            payload.putString("offerId", offer.id);
+            if (offer.extras != null) {
+                payload.putBundle("data", new android.os.Bundle(offer.extras));
+            }
+        }
+        BubbleEventBus.get().publish(type, payload);
+    }
+
+    // Stops an in-flight snap where it is, e.g. when the driver grabs the bubble mid-snap
+    private void cancelSnapAnimation() {
+        if (physics.isRunning()) {
+            android.view.Choreographer.getInstance().removeFrameCallback(physicsFrameCallback);
+            physics.stop();
+        }
+    }
+
+    // Feeds the tracker screen coordinates; the window itself moves during a drag
+    private void trackVelocity(MotionEvent event) {
+        if (velocityTracker == null) {
+            velocityTracker = android.view.VelocityTracker.obtain();
+            maxFlingVelocity = android.view.ViewConfiguration.get(this).getScaledMaximumFlingVelocity();
+        }
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            velocityTracker.clear();
+        }
+        float offsetX = event.getRawX() - event.getX();
+        float offsetY = event.getRawY() - event.getY();
+        event.offsetLocation(offsetX, offsetY);
+        velocityTracker.addMovement(event);
+        event.offsetLocation(-offsetX, -offsetY);
+    }
     
+    // All overlay windows are added and removed through these, so the live window count stays exact
+    private void addOverlayWindow(View view, WindowManager.LayoutParams params) {
+        windowManager.addView(view, params);
+        BubbleMetrics.windowAdded();
+    }
+
+    private void removeOverlayWindow(View view) {
+        windowManager.removeView(view);
+        BubbleMetrics.windowRemoved();
+    }
+
     private void createDeleteArea() {
         try {
             if (deleteAreaView != null) {
                 return; // Already exists
             }
 
-            // Get screen dimensions
-            android.util.DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
-            int screenWidth = displayMetrics.widthPixels;
-            int screenHeight = displayMetrics.heightPixels;
-
-            // Create circular delete area layout
-            android.widget.RelativeLayout deleteAreaLayout = new android.widget.RelativeLayout(this);
-            
-            // Create circular background
-            android.graphics.drawable.GradientDrawable circularDrawable = new android.graphics.drawable.GradientDrawable();
-            circularDrawable.setShape(android.graphics.drawable.GradientDrawable.OVAL);
-            circularDrawable.setColor(android.graphics.Color.parseColor("#FF4444"));
-            deleteAreaLayout.setBackground(circularDrawable);
-
-            // Create simple X icon
-            android.widget.TextView deleteIcon = new android.widget.TextView(this);
-            deleteIcon.setText("✕");
-            deleteIcon.setTextSize(30);
-            deleteIcon.setTextColor(android.graphics.Color.WHITE);
-            deleteIcon.setGravity(android.view.Gravity.CENTER);
-            deleteIcon.setTypeface(null, android.graphics.Typeface.BOLD);
-
-            // Add icon to delete area
-            android.widget.RelativeLayout.LayoutParams contentParams = new android.widget.RelativeLayout.LayoutParams(
-                android.widget.RelativeLayout.LayoutParams.WRAP_CONTENT,
-                android.widget.RelativeLayout.LayoutParams.WRAP_CONTENT
-            );
-            contentParams.addRule(android.widget.RelativeLayout.CENTER_IN_PARENT);
-            deleteAreaLayout.addView(deleteIcon, contentParams);
-
-            deleteAreaView = deleteAreaLayout;
+            deleteAreaView = buildDeleteAreaView();
 
             // Set up window parameters for delete area
             int layoutFlag = android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O
                 ? android.view.WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY
                 : android.view.WindowManager.LayoutParams.TYPE_PHONE;
 
-            android.view.WindowManager.LayoutParams deleteParams = new android.view.WindowManager.LayoutParams(
-                160, // Larger circular area
-                160, // Larger circular area
+            deleteParams = new android.view.WindowManager.LayoutParams(
+                geometry.deleteAreaSize,
+                geometry.deleteAreaSize,
                 layoutFlag,
                 android.view.WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
                     | android.view.WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
                 android.graphics.PixelFormat.TRANSLUCENT
             );
 
-            deleteParams.gravity = android.view.Gravity.BOTTOM | android.view.Gravity.CENTER_HORIZONTAL;
-            deleteParams.y = 50; // Position slightly above bottom
-
-            // Initially hidden
-            deleteAreaView.setAlpha(0f);
-            deleteAreaView.setVisibility(android.view.View.GONE);
+            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.P) {
+                deleteParams.layoutInDisplayCutoutMode = android.view.WindowManager.LayoutParams.LAYOUT_IN_DISPLAY_CUTOUT_MODE_SHORT_EDGES;
+            }
+            applyDeleteAreaGeometry(deleteParams);
 
             // Add to window manager
-            windowManager.addView(deleteAreaView, deleteParams);
+            addOverlayWindow(deleteAreaView, deleteParams);
             
             android.util.Log.d("FloatingBubble", "Delete area created successfully");
 
@@ -450,11 +1144,65 @@ public class FloatingBubbleService extends Service {
         }
     }
 
+    // Bottom center of the safe area, above the navigation bar; also reapplied on configuration changes
+    private void applyDeleteAreaGeometry(android.view.WindowManager.LayoutParams params) {
+        params.width = geometry.deleteAreaSize;
+        params.height = geometry.deleteAreaSize;
+        params.gravity = android.view.Gravity.BOTTOM | android.view.Gravity.LEFT;
+        params.x = geometry.deleteAreaCenterX - geometry.deleteAreaRadius;
+        params.y = geometry.deleteAreaBottomOffset;
+    }
+
+    // Starts hidden; shown and hidden per drag
+    private View buildDeleteAreaView() {
+        // Create circular delete area layout
+        android.widget.RelativeLayout deleteAreaLayout = new android.widget.RelativeLayout(this);
+        
+        // Create circular background
+        android.graphics.drawable.GradientDrawable circularDrawable = new android.graphics.drawable.GradientDrawable();
+        circularDrawable.setShape(android.graphics.drawable.GradientDrawable.OVAL);
+        circularDrawable.setColor(android.graphics.Color.parseColor("#FF4444"));
+        deleteAreaLayout.setBackground(circularDrawable);
+
+        // Create simple X icon
+        android.widget.TextView deleteIcon = new android.widget.TextView(this);
+        deleteIcon.setText("✕");
+        deleteIcon.setTextSize(30);
+        deleteIcon.setTextColor(android.graphics.Color.WHITE);
+        deleteIcon.setGravity(android.view.Gravity.CENTER);
+        deleteIcon.setTypeface(null, android.graphics.Typeface.BOLD);
+
+        // Add icon to delete area
+        android.widget.RelativeLayout.LayoutParams contentParams = new android.widget.RelativeLayout.LayoutParams(
+            android.widget.RelativeLayout.LayoutParams.WRAP_CONTENT,
+            android.widget.RelativeLayout.LayoutParams.WRAP_CONTENT
+        );
+        contentParams.addRule(android.widget.RelativeLayout.CENTER_IN_PARENT);
+        deleteAreaLayout.addView(deleteIcon, contentParams);
+
+        // Initially hidden
+        deleteAreaLayout.setAlpha(0f);
+        deleteAreaLayout.setVisibility(android.view.View.GONE);
+        return deleteAreaLayout;
+    }
+
     private void showDeleteArea() {
         try {
-            if (deleteAreaView != null) {
+            if (deleteAreaView == null) {
+                if (compositor != null) {
+                    // Compositor mode: built on the first drag, then kept as a layer
+                    deleteAreaView = buildDeleteAreaView();
+                } else {
+                    // Its window was dropped under memory pressure; the drag brings it back
+                    createDeleteArea();
+                }
+            }
+            if (deleteAreaView != null && deleteAreaView.getVisibility() != android.view.View.VISIBLE) {
                 deleteAreaView.setVisibility(android.view.View.VISIBLE);
                 deleteAreaView.setAlpha(1f); // Show immediately without animation
+                if (compositor != null) {
+                    compositor.showDeleteZone(deleteAreaView);
+                }
                 android.util.Log.d("FloatingBubble", "Delete area shown");
             }
         } catch (Exception e) {
@@ -467,6 +1215,10 @@ public class FloatingBubbleService extends Service {
             if (deleteAreaView != null) {
                 deleteAreaView.setAlpha(0f); // Hide immediately without animation
                 deleteAreaView.setVisibility(android.view.View.GONE);
+                if (compositor != null) {
+                    // Last layer down also releases the shared window's surface
+                    compositor.hide(deleteAreaView);
+                }
                 android.util.Log.d("FloatingBubble", "Delete area hidden");
             }
         } catch (Exception e) {
@@ -474,7 +1226,30 @@ public class FloatingBubbleService extends Service {
         }
     }
 
+    // Drops the delete zone (its own window, or a compositor layer) and the shared window
+    private void releaseOverlayLayers() {
+        dropDeleteArea();
+        if (compositor != null) {
+            compositor.release();
+            compositor = null;
+        }
+    }
+
+    private void dropDeleteArea() {
+        if (deleteAreaView != null) {
+            if (compositor != null) {
+                compositor.hide(deleteAreaView);
+            } else {
+                removeOverlayWindow(deleteAreaView);
+            }
+            deleteAreaView = null;
+        }
+    }
+
     private boolean wasInDeleteArea = false;
+    // Created once in createFloatingBubble and swapped on delete-zone enter/leave
+    private android.graphics.drawable.Drawable deleteHighlightBackground;
+    private android.graphics.drawable.Drawable bubbleNormalBackground;
     
     private void checkDeleteArea(android.view.WindowManager.LayoutParams params) {
         try {
@@ -485,16 +1260,11 @@ public class FloatingBubbleService extends Service {
                 if (!wasInDeleteArea) {
                     triggerHapticFeedback();
                     wasInDeleteArea = true;
-                }
-                
-                // Simple visual feedback - add red border
-                if (floatingView != null) {
-                    // Create border drawable
-                    android.graphics.drawable.GradientDrawable borderDrawable = new android.graphics.drawable.GradientDrawable();
-                    borderDrawable.setShape(android.graphics.drawable.GradientDrawable.OVAL);
-                    borderDrawable.setColor(android.graphics.Color.TRANSPARENT);
-                    borderDrawable.setStroke(8, android.graphics.Color.parseColor("#FF4444")); // 8px red border
-                    floatingView.setBackground(borderDrawable);
+
+                    // Simple visual feedback - swap in the prebuilt red border
+                    if (floatingView != null) {
+                        floatingView.setBackground(deleteHighlightBackground);
+                    }
                 }
             } else {
                 // Reset bubble when leaving delete area
@@ -533,7 +1303,7 @@ public class FloatingBubbleService extends Service {
         try {
             if (floatingView != null) {
                 // Reset bubble appearance - remove border
-                floatingView.setBackgroundColor(android.graphics.Color.TRANSPARENT);
+                floatingView.setBackground(bubbleNormalBackground);
             }
         } catch (Exception e) {
             android.util.Log.e("FloatingBubble", "Failed to reset bubble appearance: " + e.getMessage());
@@ -546,26 +1316,8 @@ public class FloatingBubbleService extends Service {
                 return false;
             }
 
-            android.util.DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
-            int screenWidth = displayMetrics.widthPixels;
-            int screenHeight = displayMetrics.heightPixels;
-            
-            // Delete area is circular, positioned at bottom center
-            int deleteAreaRadius = 80; // Half of the circular area (160/2)
-            int deleteAreaCenterX = screenWidth / 2;
-            int deleteAreaCenterY = screenHeight - deleteAreaRadius - 50; // Center of delete area
-            
-            // Calculate distance from bubble center to delete area center
-            int bubbleCenterX = params.x + 50; // Bubble center (assuming 100px bubble)
-            int bubbleCenterY = params.y + 50;
-            
-            float distance = (float) Math.sqrt(
-                Math.pow(bubbleCenterX - deleteAreaCenterX, 2) + 
-                Math.pow(bubbleCenterY - deleteAreaCenterY, 2)
-            );
-            
-            // Check if bubble is within the circular delete area
-            return distance <= deleteAreaRadius;
+            // Check if bubble center is within the circular delete area
+            return geometry.isInDeleteArea(params.x, params.y);
         } catch (Exception e) {
             android.util.Log.e("FloatingBubble", "Failed to check if in delete area: " + e.getMessage());
             return false;
@@ -592,16 +1344,16 @@ public class FloatingBubbleService extends Service {
                             try {
                                 // Remove bubble from window manager
                                 if (floatingView != null) {
-                                    windowManager.removeView(floatingView);
+                                    removeOverlayWindow(floatingView);
                                     floatingView = null;
                                 }
                                 
                                 // Remove delete area
-                                if (deleteAreaView != null) {
-                                    windowManager.removeView(deleteAreaView);
-                                    deleteAreaView = null;
-                                }
+                                releaseOverlayLayers();
                                 
+                                BubbleEventBus.get().publish(BubbleEventBus.BUBBLE_DELETED);
+                                publishState();
+
                                 // Stop service
                                 stopSelf();
                                 
@@ -673,6 +1425,7 @@ public class FloatingBubbleService extends Service {
     private void sendBubbleClickEvent() {
         try {
             android.util.Log.d("FloatingBubble", "Bubble clicked - showing popup overlay");
+            BubbleEventBus.get().publish(BubbleEventBus.BUBBLE_CLICK);
             // Show popup overlay directly instead of sending event to React Native
             showPopupOverlay(null);
             
@@ -683,394 +1436,181 @@ public class FloatingBubbleService extends Service {
 
     private void showPopupOverlay(Intent intent) {
         try {
-            // Get screen dimensions
-            android.util.DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
-            int screenWidth = displayMetrics.widthPixels;
-            int screenHeight = displayMetrics.heightPixels;
-            int popupWidth = (int) (screenWidth * 0.9); // 90% of screen width
+            if (isPopupAttached) {
+                if (isPopupClosing) {
+                    // Tapped during the exit animation - bring the same window back
+                    isPopupClosing = false;
+                    popupHolder.content.animate().cancel();
+                    animatePopupIn(popupHolder.content);
+                }
+                return; // Already open
+            }
+            // Measured from the tap when there was one, so the click animation counts too
+            popupOpenStartNanos = bubbleTapNanos != 0L ? bubbleTapNanos : System.nanoTime();
+            bubbleTapNanos = 0L;
+            popupOpenWasCold = popupHolder == null;
+            ensurePopupHolder();
+
+            currentOffer = offerQueue.peek() != null ? offerQueue.peek() : new Offer();
+            popupHolder.bind(currentOffer);
+
+            // Re-attach the prebuilt tree to the window manager. Each attach gets a new
+            // window-level tree observer, so the pre-draw listener is registered again.
+            android.view.ViewTreeObserver popupTreeObserver = popupHolder.root.getViewTreeObserver();
+            popupTreeObserver.removeOnPreDrawListener(popupPreDrawListener);
+            popupTreeObserver.addOnPreDrawListener(popupPreDrawListener);
+            if (compositor != null) {
+                compositor.showPopup(popupHolder.root);
+            } else {
+                addOverlayWindow(popupHolder.root, popupParams);
+            }
+            isPopupAttached = true;
+            publishState();
             
-            // Create popup overlay window
-            android.view.WindowManager.LayoutParams popupParams = new android.view.WindowManager.LayoutParams(
-                android.view.WindowManager.LayoutParams.MATCH_PARENT,
-                android.view.WindowManager.LayoutParams.MATCH_PARENT,
-                android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O 
-                    ? android.view.WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY
-                    : android.view.WindowManager.LayoutParams.TYPE_PHONE,
-                android.view.WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
-                    | android.view.WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
-                android.graphics.PixelFormat.TRANSLUCENT
-            );
+            // Animate popup in
+            animatePopupIn(popupHolder.content);
+            
+            android.util.Log.d("FloatingBubble", "Popup overlay attached (" + (popupOpenWasCold ? "cold build" : "prebuilt") + ")");
 
-            // Create popup layout with semi-transparent background
-            android.widget.RelativeLayout popupLayout = new android.widget.RelativeLayout(this);
-            popupLayout.setBackgroundColor(android.graphics.Color.parseColor("#80000000")); // Semi-transparent background
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to show popup overlay: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            // Create main popup content container
-            android.widget.LinearLayout contentLayout = new android.widget.LinearLayout(this);
-            contentLayout.setOrientation(android.widget.LinearLayout.VERTICAL);
-            contentLayout.setPadding(24, 24, 24, 24);
-            
-            // Create rounded background with shadow (matching React Native design)
-            android.graphics.drawable.GradientDrawable background = new android.graphics.drawable.GradientDrawable();
-            background.setColor(android.graphics.Color.WHITE);
-            background.setCornerRadius(24); // Rounded corners like React Native
-            
-            // Add shadow effect
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
-                contentLayout.setElevation(12);
+    private void ensurePopupHolder() {
+        if (popupHolder != null && !isPopupAttached && popupHolder.isFlat() != useFlatPopup) {
+            // Render mode changed since the tree was built; rebuild on this open
+            popupHolder = null;
+        }
+        if (popupHolder != null) {
+            return;
+        }
+        // 90% of the safe area's width, capped for landscape and tablets
+        int popupWidth = geometry.popupWidth;
+
+        // Create popup overlay window params
+        popupParams = new android.view.WindowManager.LayoutParams(
+            android.view.WindowManager.LayoutParams.MATCH_PARENT,
+            android.view.WindowManager.LayoutParams.MATCH_PARENT,
+            android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O 
+                ? android.view.WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY
+                : android.view.WindowManager.LayoutParams.TYPE_PHONE,
+            android.view.WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
+                | android.view.WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+            android.graphics.PixelFormat.TRANSLUCENT
+        );
+
+        popupHolder = new PopupViewHolder(this, popupWidth, useFlatPopup, popupTextCache, new PopupViewHolder.Listener() {
+            @Override
+            public void onAccept() {
+                BubbleMetrics.popupVisibleToDecision.recordSinceNanos(popupVisibleNanos);
+                BubbleMetrics.offersAccepted.incrementAndGet();
+                publishOfferEvent(BubbleEventBus.OFFER_ACCEPTED, currentOffer);
+                android.widget.Toast.makeText(getApplicationContext(), "Order accepted!", android.widget.Toast.LENGTH_SHORT).show();
+                resolveCurrentOffer();
             }
-            
-            contentLayout.setBackground(background);
-            
-            // Set layout params for content - position in center
-            android.widget.RelativeLayout.LayoutParams contentParams = new android.widget.RelativeLayout.LayoutParams(
-                popupWidth,
-                android.widget.RelativeLayout.LayoutParams.WRAP_CONTENT
-            );
-            
-            // Position popup in center of screen
-            contentParams.addRule(android.widget.RelativeLayout.CENTER_IN_PARENT);
-
-            // HEADER SECTION (matching React Native design)
-            android.widget.LinearLayout headerLayout = new android.widget.LinearLayout(this);
-            headerLayout.setOrientation(android.widget.LinearLayout.VERTICAL);
-            headerLayout.setGravity(android.view.Gravity.CENTER);
-            android.widget.LinearLayout.LayoutParams headerParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            headerParams.setMargins(0, 0, 0, 20);
-
-            // Title
-            android.widget.TextView titleView = new android.widget.TextView(this);
-            titleView.setText(popupTitle);
-            titleView.setTextSize(20);
-            titleView.setTextColor(android.graphics.Color.parseColor("#1F2937"));
-            titleView.setTypeface(null, android.graphics.Typeface.BOLD);
-            titleView.setGravity(android.view.Gravity.CENTER);
-            android.widget.LinearLayout.LayoutParams titleParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            titleParams.setMargins(0, 0, 0, 8);
-            headerLayout.addView(titleView, titleParams);
-
-            // Subtitle
-            android.widget.TextView subtitleView = new android.widget.TextView(this);
-            subtitleView.setText(popupSubtitle);
-            subtitleView.setTextSize(14);
-            subtitleView.setTextColor(android.graphics.Color.parseColor("#6B7280"));
-            subtitleView.setGravity(android.view.Gravity.CENTER);
-            headerLayout.addView(subtitleView);
-
-            contentLayout.addView(headerLayout, headerParams);
-
-            // PRICE CARD SECTION (green background like React Native)
-            android.widget.LinearLayout priceCardLayout = new android.widget.LinearLayout(this);
-            priceCardLayout.setOrientation(android.widget.LinearLayout.VERTICAL);
-            priceCardLayout.setGravity(android.view.Gravity.CENTER);
-            priceCardLayout.setPadding(24, 24, 24, 24);
-            
-            // Create rounded background for price card
-            android.graphics.drawable.GradientDrawable priceCardBackground = new android.graphics.drawable.GradientDrawable();
-            priceCardBackground.setColor(android.graphics.Color.parseColor("#10B981"));
-            priceCardBackground.setCornerRadius(16);
-            priceCardLayout.setBackground(priceCardBackground);
-
-            android.widget.LinearLayout.LayoutParams priceCardParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            priceCardParams.setMargins(0, 0, 0, 20);
-
-            // Price text
-            android.widget.TextView priceView = new android.widget.TextView(this);
-            priceView.setText(popupPrice);
-            priceView.setTextSize(28);
-            priceView.setTextColor(android.graphics.Color.WHITE);
-            priceView.setTypeface(null, android.graphics.Typeface.BOLD);
-            priceView.setGravity(android.view.Gravity.CENTER);
-            android.widget.LinearLayout.LayoutParams priceParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            priceParams.setMargins(0, 0, 0, 8);
-            priceCardLayout.addView(priceView, priceParams);
-
-            // Time and distance
-            android.widget.TextView durationDistanceView = new android.widget.TextView(this);
-            durationDistanceView.setText("⏱ " + popupDuration + " • " + popupDistance);
-            durationDistanceView.setTextSize(14);
-            durationDistanceView.setTextColor(android.graphics.Color.WHITE);
-            durationDistanceView.setGravity(android.view.Gravity.CENTER);
-            priceCardLayout.addView(durationDistanceView);
-
-            contentLayout.addView(priceCardLayout, priceCardParams);
-
-            // LOCATION SECTION (matching React Native design with dots)
-            android.widget.LinearLayout locationContainer = new android.widget.LinearLayout(this);
-            locationContainer.setOrientation(android.widget.LinearLayout.VERTICAL);
-            android.widget.LinearLayout.LayoutParams locationContainerParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            locationContainerParams.setMargins(0, 0, 0, 20);
-
-            // Pickup location item
-            android.widget.LinearLayout pickupItem = new android.widget.LinearLayout(this);
-            pickupItem.setOrientation(android.widget.LinearLayout.HORIZONTAL);
-            pickupItem.setGravity(android.view.Gravity.CENTER_VERTICAL);
-            android.widget.LinearLayout.LayoutParams pickupItemParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            pickupItemParams.setMargins(0, 0, 0, 16);
-
-            // Pickup dot
-            android.view.View pickupDot = new android.view.View(this);
-            pickupDot.setBackgroundColor(android.graphics.Color.parseColor("#10B981"));
-            android.widget.LinearLayout.LayoutParams pickupDotParams = new android.widget.LinearLayout.LayoutParams(12, 12);
-            pickupDotParams.setMargins(0, 0, 12, 0);
-            pickupItem.addView(pickupDot, pickupDotParams);
-
-            // Pickup info
-            android.widget.LinearLayout pickupInfo = new android.widget.LinearLayout(this);
-            pickupInfo.setOrientation(android.widget.LinearLayout.VERTICAL);
-            pickupInfo.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-                0, android.widget.LinearLayout.LayoutParams.WRAP_CONTENT, 1.0f
-            ));
-
-            android.widget.TextView pickupTitleView = new android.widget.TextView(this);
-            pickupTitleView.setText(popupPickupTitle);
-            pickupTitleView.setTextSize(12);
-            pickupTitleView.setTextColor(android.graphics.Color.parseColor("#10B981"));
-            pickupTitleView.setTypeface(null, android.graphics.Typeface.BOLD);
-            android.widget.LinearLayout.LayoutParams pickupTitleParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            pickupTitleParams.setMargins(0, 0, 0, 4);
-            pickupInfo.addView(pickupTitleView, pickupTitleParams);
-
-            android.widget.TextView pickupAddressView = new android.widget.TextView(this);
-            pickupAddressView.setText(popupPickupAddress);
-            pickupAddressView.setTextSize(14);
-            pickupAddressView.setTextColor(android.graphics.Color.parseColor("#1F2937"));
-            pickupInfo.addView(pickupAddressView);
-
-            pickupItem.addView(pickupInfo);
-            locationContainer.addView(pickupItem, pickupItemParams);
-
-            // Destination location item
-            android.widget.LinearLayout destinationItem = new android.widget.LinearLayout(this);
-            destinationItem.setOrientation(android.widget.LinearLayout.HORIZONTAL);
-            destinationItem.setGravity(android.view.Gravity.CENTER_VERTICAL);
-
-            // Destination dot
-            android.view.View destinationDot = new android.view.View(this);
-            destinationDot.setBackgroundColor(android.graphics.Color.parseColor("#EF4444"));
-            android.widget.LinearLayout.LayoutParams destinationDotParams = new android.widget.LinearLayout.LayoutParams(12, 12);
-            destinationDotParams.setMargins(0, 0, 12, 0);
-            destinationItem.addView(destinationDot, destinationDotParams);
-
-            // Destination info
-            android.widget.LinearLayout destinationInfo = new android.widget.LinearLayout(this);
-            destinationInfo.setOrientation(android.widget.LinearLayout.VERTICAL);
-            destinationInfo.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-                0, android.widget.LinearLayout.LayoutParams.WRAP_CONTENT, 1.0f
-            ));
-
-            android.widget.TextView destinationTitleView = new android.widget.TextView(this);
-            destinationTitleView.setText(popupDestinationTitle);
-            destinationTitleView.setTextSize(12);
-            destinationTitleView.setTextColor(android.graphics.Color.parseColor("#EF4444"));
-            destinationTitleView.setTypeface(null, android.graphics.Typeface.BOLD);
-            android.widget.LinearLayout.LayoutParams destinationTitleParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            destinationTitleParams.setMargins(0, 0, 0, 4);
-            destinationInfo.addView(destinationTitleView, destinationTitleParams);
-
-            android.widget.TextView destinationAddressView = new android.widget.TextView(this);
-            destinationAddressView.setText(popupDestinationAddress);
-            destinationAddressView.setTextSize(14);
-            destinationAddressView.setTextColor(android.graphics.Color.parseColor("#1F2937"));
-            destinationInfo.addView(destinationAddressView);
-
-            destinationItem.addView(destinationInfo);
-            locationContainer.addView(destinationItem);
-
-            contentLayout.addView(locationContainer, locationContainerParams);
-
-            // PAYMENT SECTION
-            android.widget.LinearLayout paymentContainer = new android.widget.LinearLayout(this);
-            paymentContainer.setOrientation(android.widget.LinearLayout.HORIZONTAL);
-            paymentContainer.setGravity(android.view.Gravity.CENTER_VERTICAL);
-            android.widget.LinearLayout.LayoutParams paymentContainerParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            paymentContainerParams.setMargins(0, 0, 0, 24);
-
-            // Payment icon
-            android.widget.TextView paymentIcon = new android.widget.TextView(this);
-            paymentIcon.setText("💳");
-            paymentIcon.setTextSize(20);
-            android.widget.LinearLayout.LayoutParams paymentIconParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            paymentIconParams.setMargins(0, 0, 12, 0);
-            paymentContainer.addView(paymentIcon, paymentIconParams);
-
-            // Payment info
-            android.widget.LinearLayout paymentInfo = new android.widget.LinearLayout(this);
-            paymentInfo.setOrientation(android.widget.LinearLayout.VERTICAL);
-            paymentInfo.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
-                0, android.widget.LinearLayout.LayoutParams.WRAP_CONTENT, 1.0f
-            ));
-
-            android.widget.TextView paymentLabel = new android.widget.TextView(this);
-            paymentLabel.setText("Metode Pembayaran");
-            paymentLabel.setTextSize(12);
-            paymentLabel.setTextColor(android.graphics.Color.parseColor("#6B7280"));
-            paymentInfo.addView(paymentLabel);
-
-            android.widget.TextView paymentType = new android.widget.TextView(this);
-            paymentType.setText(popupPaymentMethod);
-            paymentType.setTextSize(14);
-            paymentType.setTextColor(android.graphics.Color.parseColor("#1F2937"));
-            paymentType.setTypeface(null, android.graphics.Typeface.BOLD);
-            paymentInfo.addView(paymentType);
-
-            paymentContainer.addView(paymentInfo);
-            contentLayout.addView(paymentContainer, paymentContainerParams);
-
-            // BUTTON SECTION (matching React Native design)
-            android.widget.LinearLayout buttonContainer = new android.widget.LinearLayout(this);
-            buttonContainer.setOrientation(android.widget.LinearLayout.VERTICAL);
-
-            // Accept button (green background)
-            android.widget.Button acceptButton = new android.widget.Button(this);
-            acceptButton.setText(popupAcceptText);
-            acceptButton.setTextColor(android.graphics.Color.WHITE);
-            acceptButton.setTextSize(16);
-            acceptButton.setTypeface(null, android.graphics.Typeface.BOLD);
-            
-            // Create rounded background for accept button
-            android.graphics.drawable.GradientDrawable acceptButtonBackground = new android.graphics.drawable.GradientDrawable();
-            acceptButtonBackground.setColor(android.graphics.Color.parseColor("#10B981"));
-            acceptButtonBackground.setCornerRadius(12);
-            acceptButton.setBackground(acceptButtonBackground);
-            
-            android.widget.LinearLayout.LayoutParams acceptButtonParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            acceptButtonParams.setMargins(0, 0, 0, 12);
-            acceptButton.setPadding(16, 16, 16, 16);
-            
-            acceptButton.setOnClickListener(new android.view.View.OnClickListener() {
-                @Override
-                public void onClick(android.view.View v) {
-                    // Add button press animation
-                    v.animate()
-                        .scaleX(0.95f)
-                        .scaleY(0.95f)
-                        .setDuration(100)
-                        .withEndAction(new Runnable() {
-                            @Override
-                            public void run() {
-                                v.animate()
-                                    .scaleX(1f)
-                                    .scaleY(1f)
-                                    .setDuration(100)
-                                    .start();
-                            }
-                        })
-                        .start();
-                    
-                    android.widget.Toast.makeText(getApplicationContext(), "Order accepted!", android.widget.Toast.LENGTH_SHORT).show();
-                    animatePopupOut(popupLayout);
-                }
-            });
-
-            // Reject button (gray background)
-            android.widget.Button rejectButton = new android.widget.Button(this);
-            rejectButton.setText(popupRejectText);
-            rejectButton.setTextColor(android.graphics.Color.parseColor("#6B7280"));
-            rejectButton.setTextSize(16);
-            rejectButton.setTypeface(null, android.graphics.Typeface.BOLD);
-            
-            // Create rounded background for reject button
-            android.graphics.drawable.GradientDrawable rejectButtonBackground = new android.graphics.drawable.GradientDrawable();
-            rejectButtonBackground.setColor(android.graphics.Color.parseColor("#F9FAFB"));
-            rejectButtonBackground.setCornerRadius(12);
-            rejectButton.setBackground(rejectButtonBackground);
-            
-            android.widget.LinearLayout.LayoutParams rejectButtonParams = new android.widget.LinearLayout.LayoutParams(
-                android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
-                android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            rejectButton.setPadding(12, 12, 12, 12);
-            
-            rejectButton.setOnClickListener(new android.view.View.OnClickListener() {
-                @Override
-                public void onClick(android.view.View v) {
-                    // Add button press animation
-                    v.animate()
-                        .scaleX(0.95f)
-                        .scaleY(0.95f)
-                        .setDuration(100)
-                        .withEndAction(new Runnable() {
-                            @Override
-                            public void run() {
-                                v.animate()
-                                    .scaleX(1f)
-                                    .scaleY(1f)
-                                    .setDuration(100)
-                                    .start();
-                            }
-                        })
-                        .start();
-                    
-                    android.widget.Toast.makeText(getApplicationContext(), "Order rejected!", android.widget.Toast.LENGTH_SHORT).show();
-                    animatePopupOut(popupLayout);
-                }
-            });
 
-            buttonContainer.addView(acceptButton, acceptButtonParams);
-            buttonContainer.addView(rejectButton, rejectButtonParams);
-            contentLayout.addView(buttonContainer);
+            @Override
+            public void onReject() {
+                BubbleMetrics.popupVisibleToDecision.recordSinceNanos(popupVisibleNanos);
+                BubbleMetrics.offersRejected.incrementAndGet();
+                publishOfferEvent(BubbleEventBus.OFFER_REJECTED, currentOffer);
+                android.widget.Toast.makeText(getApplicationContext(), "Order rejected!", android.widget.Toast.LENGTH_SHORT).show();
+                resolveCurrentOffer();
+            }
 
-            // Add content to popup layout
-            popupLayout.addView(contentLayout, contentParams);
+            @Override
+            public void onDismiss() {
+                publishOfferEvent(BubbleEventBus.POPUP_DISMISSED, currentOffer);
+                // Animate out before detaching
+                animatePopupOut();
+            }
+        });
 
-            // Add click listener to close popup when tapping outside
-            popupLayout.setOnClickListener(new android.view.View.OnClickListener() {
-                @Override
-                public void onClick(android.view.View v) {
-                    // Animate out before removing
-                    animatePopupOut(popupLayout);
+        // Single long-lived listener, so measuring an open does not allocate
+        popupPreDrawListener = new android.view.ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (popupOpenStartNanos != 0L) {
+                    long latencyMicros = (System.nanoTime() - popupOpenStartNanos) / 1000L;
+                    popupOpenStartNanos = 0L;
+                    popupVisibleNanos = System.nanoTime();
+                    BubbleMetrics.tapToPopupVisible.record(latencyMicros);
+                    android.util.Log.d("FloatingBubble", "Popup open latency: " + latencyMicros + "us (" + (popupOpenWasCold ? "cold build" : "prebuilt") + ")");
                 }
-            });
+                return true;
+            }
+        };
+        android.util.Log.d("FloatingBubble", "Popup view tree built");
 
-            // Add popup to window manager
-            windowManager.addView(popupLayout, popupParams);
-            
-            // Animate popup in
-            animatePopupIn(contentLayout);
-            
-            android.util.Log.d("FloatingBubble", "Popup overlay added successfully with new design matching React Native");
+        // Offers that arrived before the tree existed get their text shaped now
+        for (Offer pending : offerQueue.toArrayInArrivalOrder()) {
+            popupHolder.prepare(pending);
+        }
+    }
+
+    // Text shaping happens when the offer arrives, not when the driver taps
+    private void preparePopupText(Offer offer) {
+        if (popupHolder != null && popupHolder.isFlat() == useFlatPopup) {
+            popupHolder.prepare(offer);
+        } else if (useFlatPopup) {
+            // The card is measured at the popup width, which is known before it exists
+            popupTextCache.prepareCard(offer, geometry.popupWidth);
+        }
+        // View tree without a holder: prepared from its TextViews once it is built
+    }
 
+    // Build the popup tree once the main thread goes idle after the bubble appears
+    private void prebuildPopupWhenIdle() {
+        android.os.Looper.myQueue().addIdleHandler(new android.os.MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                try {
+                    if (floatingView != null) {
+                        ensurePopupHolder();
+                    }
+                } catch (Exception e) {
+                    android.util.Log.e("FloatingBubble", "Failed to prebuild popup: " + e.getMessage());
+                }
+                return false;
+            }
+        });
+    }
+
+    // Accept or reject: drop the shown offer and advance to the next one in place
+    private void resolveCurrentOffer() {
+        try {
+            if (currentOffer != null && currentOffer.id != null && offerQueue.remove(currentOffer.id)) {
+                journal.removeOffer(currentOffer.id);
+                expiryWheel.cancel(currentOffer.id);
+            }
+            updateBadge();
+            updateCountdownRing();
+            showNextOfferInPopup();
+            publishState();
         } catch (Exception e) {
-            android.util.Log.e("FloatingBubble", "Failed to show popup overlay: " + e.getMessage());
-            e.printStackTrace();
+            android.util.Log.e("FloatingBubble", "Failed to advance offer: " + e.getMessage());
         }
     }
 
-    private void animatePopupIn(android.widget.LinearLayout contentLayout) {
+    // Rebinds the open popup to the new head offer, or closes it when none is left
+    private void showNextOfferInPopup() {
+        Offer next = offerQueue.peek();
+        if (next == null || !isPopupAttached) {
+            currentOffer = null;
+            animatePopupOut();
+            return;
+        }
+
+        android.util.Log.d("FloatingBubble", "Advancing popup to offer " + next.id + " (pending: " + offerQueue.size() + ")");
+        currentOffer = next;
+        popupVisibleNanos = System.nanoTime();
+        popupHolder.bind(next);
+        animatePopupIn(popupHolder.content);
+    }
+
+    private void animatePopupIn(android.view.View contentLayout) {
         try {
             // Set initial state - invisible and scaled down
             contentLayout.setAlpha(0f);
@@ -1094,68 +1634,103 @@ public class FloatingBubbleService extends Service {
         }
     }
 
-    private void animatePopupOut(android.widget.RelativeLayout popupLayout) {
+    private void animatePopupOut() {
+        if (!isPopupAttached || isPopupClosing) {
+            return;
+        }
+        isPopupClosing = true;
+        publishState();
         try {
-            // Find content layout
-            android.widget.LinearLayout contentLayout = null;
-            for (int i = 0; i < popupLayout.getChildCount(); i++) {
-                android.view.View child = popupLayout.getChildAt(i);
-                if (child instanceof android.widget.LinearLayout) {
-                    contentLayout = (android.widget.LinearLayout) child;
-                    break;
-                }
-            }
-
-            if (contentLayout != null) {
-                // Animate out with fade and scale
-                contentLayout.animate()
-                    .alpha(0f)
-                    .scaleX(0.8f)
-                    .scaleY(0.8f)
-                    .translationY(-30f)
-                    .setDuration(250)
-                    .setInterpolator(new android.view.animation.AccelerateInterpolator())
-                    .withEndAction(new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                windowManager.removeView(popupLayout);
-                                android.util.Log.d("FloatingBubble", "Popup removed after animation");
-                            } catch (Exception e) {
-                                android.util.Log.e("FloatingBubble", "Failed to remove popup: " + e.getMessage());
-                            }
-                        }
-                    })
-                    .start();
-            } else {
-                // Fallback - remove immediately
-                windowManager.removeView(popupLayout);
-            }
+            // Animate out with fade and scale
+            popupHolder.content.animate()
+                .alpha(0f)
+                .scaleX(0.8f)
+                .scaleY(0.8f)
+                .translationY(-30f)
+                .setDuration(250)
+                .setInterpolator(new android.view.animation.AccelerateInterpolator())
+                .withEndAction(new Runnable() {
+                    @Override
+                    public void run() {
+                        detachPopup();
+                        android.util.Log.d("FloatingBubble", "Popup detached after animation");
+                    }
+                })
+                .start();
 
             android.util.Log.d("FloatingBubble", "Popup animate out started");
         } catch (Exception e) {
             android.util.Log.e("FloatingBubble", "Failed to animate popup out: " + e.getMessage());
-            // Fallback - remove immediately
-            try {
-                windowManager.removeView(popupLayout);
-            } catch (Exception ex) {
-                android.util.Log.e("FloatingBubble", "Failed to remove popup in fallback: " + ex.getMessage());
+            // Fallback - detach immediately
+            detachPopup();
+        }
+    }
+
+    // Removes the popup window but keeps the view tree for the next open
+    private void detachPopup() {
+        try {
+            if (isPopupAttached) {
+                if (compositor != null) {
+                    compositor.hide(popupHolder.root);
+                } else {
+                    removeOverlayWindow(popupHolder.root);
+                }
             }
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to remove popup: " + e.getMessage());
         }
+        isPopupAttached = false;
+        isPopupClosing = false;
+        popupVisibleNanos = 0L;
+        publishState();
     }
     
     @Override
     public void onDestroy() {
         super.onDestroy();
+        isDestroyed = true;
         try {
+            cancelSnapAnimation();
+            moveThrottle.cancel();
+            if (gestureRecognizer != null) {
+                gestureRecognizer.reset();
+            }
+            if (velocityTracker != null) {
+                velocityTracker.recycle();
+                velocityTracker = null;
+            }
+            if (isDragFrameScheduled) {
+                android.view.Choreographer.getInstance().removeFrameCallback(dragFrameCallback);
+                isDragFrameScheduled = false;
+            }
             if (floatingView != null) {
-                windowManager.removeView(floatingView);
+                removeOverlayWindow(floatingView);
                 floatingView = null;
             }
-            if (deleteAreaView != null) {
-                windowManager.removeView(deleteAreaView);
-                deleteAreaView = null;
+            if (popupHolder != null) {
+                popupHolder.content.animate().cancel();
+                detachPopup();
+                popupHolder = null;
+            }
+            releaseOverlayLayers();
+            offerQueue.clear();
+            currentOffer = null;
+            if (expiryWheel != null) {
+                expiryWheel.clear();
+            }
+            // onDestroy means a deliberate stop; a killed process never gets here
+            if (journal != null) {
+                journal.clear();
+                journal.close();
+            }
+            if (iconLoader != null) {
+                iconLoader.shutdown();
+            }
+            if (popupTextCache != null) {
+                popupTextCache.shutdown();
             }
+            // Everything above is gone; the snapshot goes back to stopped
+            publishState();
             android.util.Log.d("FloatingBubble", "Service destroyed and views cleaned up");
         } catch (Exception e) {
             android.util.Log.e("FloatingBubble", "Failed to clean up views: " + e.getMessage());
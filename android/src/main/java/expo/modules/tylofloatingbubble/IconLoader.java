@@ -0,0 +1,227 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Loads bubble icons off the main thread. Sources can be drawable resource
+// names ("tylo_circle"), file paths ("file:///...", "/...") or content://
+// URIs. Bitmaps are downsampled to the requested size while decoding and kept
+// in a byte-bounded LRU keyed by source and size.
+final class IconLoader {
+    interface Callback {
+        // Both run on the main thread
+        void onIconLoaded(Bitmap bitmap);
+
+        void onIconFailed();
+    }
+
+    private final Context context;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> cache;
+    // Resource name lookups are reflective, so each name is resolved once (decoder thread only)
+    private final HashMap<String, Integer> resourceIds = new HashMap<>();
+
+    IconLoader(Context context, int maxCacheBytes) {
+        this.context = context.getApplicationContext();
+        this.executor = Executors.newSingleThreadExecutor();
+        this.cache = new LruCache<String, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    static String cacheKey(String source, int sizePx) {
+        return source + "@" + sizePx;
+    }
+
+    // Calls back synchronously on a cache hit, otherwise once decoding finishes
+    void load(final String source, final int sizePx, final Callback callback) {
+        if (source == null || source.isEmpty()) {
+            callback.onIconFailed();
+            return;
+        }
+        final String key = cacheKey(source, sizePx);
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            callback.onIconLoaded(cached);
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+                try {
+                    bitmap = decode(source, sizePx);
+                } catch (Exception e) {
+                    android.util.Log.e("FloatingBubble", "Failed to decode icon " + source + ": " + e.getMessage());
+                } catch (OutOfMemoryError e) {
+                    android.util.Log.e("FloatingBubble", "Out of memory decoding icon " + source);
+                }
+                if (bitmap != null) {
+                    cache.put(key, bitmap);
+                }
+                final Bitmap result = bitmap;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result != null) {
+                            callback.onIconLoaded(result);
+                        } else {
+                            callback.onIconFailed();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // Returns the number of bytes released
+    int trim(int level) {
+        int before = cache.size();
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+            || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+            || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // Keep the icon currently on screen, which is the most recently used
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+        return before - cache.size();
+    }
+
+    int cachedBytes() {
+        return cache.size();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        cache.evictAll();
+    }
+
+    private Bitmap decode(String source, int sizePx) throws Exception {
+        if (source.startsWith("content://") || source.startsWith("android.resource://")) {
+            return decodeUri(Uri.parse(source), sizePx);
+        }
+        if (source.startsWith("file://")) {
+            return decodeFile(Uri.parse(source).getPath(), sizePx);
+        }
+        if (source.startsWith("/")) {
+            return decodeFile(source, sizePx);
+        }
+        return decodeResource(source, sizePx);
+    }
+
+    private Bitmap decodeResource(String name, int sizePx) {
+        Integer resourceId = resourceIds.get(name);
+        if (resourceId == null) {
+            resourceId = context.getResources().getIdentifier(name, "drawable", context.getPackageName());
+            resourceIds.put(name, resourceId);
+        }
+        if (resourceId == 0) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(context.getResources(), resourceId, options);
+        if (options.outWidth > 0 && options.outHeight > 0) {
+            options.inSampleSize = sampleSize(options.outWidth, options.outHeight, sizePx);
+            options.inJustDecodeBounds = false;
+            return scaleToFit(BitmapFactory.decodeResource(context.getResources(), resourceId, options), sizePx);
+        }
+        // Not a bitmap (vector, shape, ...): rasterize the drawable at the target size
+        Drawable drawable = context.getResources().getDrawable(resourceId, null);
+        Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, sizePx, sizePx);
+        drawable.draw(canvas);
+        return bitmap;
+    }
+
+    private Bitmap decodeFile(String path, int sizePx) {
+        if (path == null) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, sizePx);
+        options.inJustDecodeBounds = false;
+        return scaleToFit(BitmapFactory.decodeFile(path, options), sizePx);
+    }
+
+    // Streams cannot rewind, so bounds and pixels are read from two opens
+    private Bitmap decodeUri(Uri uri, int sizePx) throws Exception {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        InputStream boundsStream = context.getContentResolver().openInputStream(uri);
+        if (boundsStream == null) {
+            return null;
+        }
+        try {
+            BitmapFactory.decodeStream(boundsStream, null, options);
+        } finally {
+            boundsStream.close();
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, sizePx);
+        options.inJustDecodeBounds = false;
+        InputStream pixelStream = context.getContentResolver().openInputStream(uri);
+        if (pixelStream == null) {
+            return null;
+        }
+        try {
+            return scaleToFit(BitmapFactory.decodeStream(pixelStream, null, options), sizePx);
+        } finally {
+            pixelStream.close();
+        }
+    }
+
+    // Largest power of two that keeps the shorter side at or above the target
+    static int sampleSize(int width, int height, int sizePx) {
+        int sample = 1;
+        int shorter = Math.min(width, height);
+        while (shorter / (sample * 2) >= sizePx) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    // Sampling only halves, so finish with one filtered scale down to the target
+    private static Bitmap scaleToFit(Bitmap bitmap, int sizePx) {
+        if (bitmap == null) {
+            return null;
+        }
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (width <= sizePx && height <= sizePx) {
+            return bitmap;
+        }
+        float scale = Math.min((float) sizePx / width, (float) sizePx / height);
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+}
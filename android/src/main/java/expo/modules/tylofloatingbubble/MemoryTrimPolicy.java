@@ -0,0 +1,97 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.ComponentCallbacks2;
+import android.view.View;
+import android.view.ViewGroup;
+
+// How far the service sheds memory for a given trim level, and rough sizes
+// for what it sheds. Each tier includes the ones below it. Nothing dropped
+// here is needed to keep the bubble on screen; the popup tree, text layouts
+// and delete zone are rebuilt on the next tap or drag.
+final class MemoryTrimPolicy {
+    static final int TIER_NONE = 0; // UI hidden: the bubble is still on screen and in use
+    static final int TIER_CACHES = 1; // Icon cache trimmed by IconLoader's own rules
+    static final int TIER_POPUP = 2; // Also the detached popup tree and shaped popup text
+    static final int TIER_MINIMAL = 3; // Also every overlay window but the bubble's
+
+    // onLowMemory has no level of its own; treated as the most severe
+    static final int LOW_MEMORY = -1;
+
+    // Indexes into BubbleMetrics.TRIM_LEVELS
+    private static final int INDEX_RUNNING_MODERATE = 0;
+    private static final int INDEX_RUNNING_LOW = 1;
+    private static final int INDEX_RUNNING_CRITICAL = 2;
+    private static final int INDEX_UI_HIDDEN = 3;
+    private static final int INDEX_BACKGROUND = 4;
+    private static final int INDEX_MODERATE = 5;
+    private static final int INDEX_COMPLETE = 6;
+    private static final int INDEX_LOW_MEMORY = 7;
+
+    // A View with its RenderNode, listener info and layout params; drawables are small shapes here
+    private static final int VIEW_BYTES = 1024;
+
+    private MemoryTrimPolicy() {
+    }
+
+    static int tierFor(int level) {
+        switch (metricsIndex(level)) {
+            case INDEX_UI_HIDDEN:
+                return TIER_NONE;
+            case INDEX_BACKGROUND:
+                return TIER_CACHES;
+            case INDEX_RUNNING_MODERATE:
+            case INDEX_RUNNING_LOW:
+            case INDEX_MODERATE:
+                return TIER_POPUP;
+            default:
+                return TIER_MINIMAL;
+        }
+    }
+
+    // Levels the platform may add later fall in with the nearest known one below them
+    static int metricsIndex(int level) {
+        if (level == LOW_MEMORY) {
+            return INDEX_LOW_MEMORY;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            return INDEX_COMPLETE;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            return INDEX_MODERATE;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return INDEX_BACKGROUND;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return INDEX_UI_HIDDEN;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return INDEX_RUNNING_CRITICAL;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return INDEX_RUNNING_LOW;
+        }
+        return INDEX_RUNNING_MODERATE;
+    }
+
+    // IconLoader takes platform levels; onLowMemory evicts like TRIM_MEMORY_COMPLETE
+    static int iconLevel(int level) {
+        return level == LOW_MEMORY ? ComponentCallbacks2.TRIM_MEMORY_COMPLETE : level;
+    }
+
+    // Estimate for a detached tree; text layouts are counted by PopupTextCache
+    static long viewTreeBytes(View root) {
+        return root != null ? (long) countViews(root) * VIEW_BYTES : 0L;
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+// Bubble positions for JS, at most a configured number per second. Positions
+// arriving between two sends only overwrite the pending one; a trailing send
+// at the end of the interval delivers the latest. Frames never wait on it:
+// a move is a few field writes, and at most one Handler message is queued.
+// The position the bubble settles at is always sent, right away.
+final class MoveThrottle {
+    interface Sink {
+        // Main thread
+        void send(int x, int y, boolean dragging, boolean settled);
+    }
+
+    static final int MAX_RATE = 120; // Per second; above the display rate nothing more gets through
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Sink sink;
+    private long lastSentAt; // uptimeMillis
+    private boolean hasPending = false;
+    private boolean isTrailingScheduled = false;
+    private int pendingX;
+    private int pendingY;
+    private boolean pendingDragging;
+
+    private final Runnable trailingSend = new Runnable() {
+        @Override
+        public void run() {
+            isTrailingScheduled = false;
+            sendPending(SystemClock.uptimeMillis());
+        }
+    };
+
+    MoveThrottle(Sink sink) {
+        this.sink = sink;
+    }
+
+    // In-flight position, from a drag frame or a snap frame; dropped when the rate is 0
+    void move(int x, int y, boolean dragging, int maxPerSecond) {
+        if (maxPerSecond <= 0) {
+            return;
+        }
+        pendingX = x;
+        pendingY = y;
+        pendingDragging = dragging;
+        hasPending = true;
+        long interval = 1000L / Math.min(maxPerSecond, MAX_RATE);
+        long now = SystemClock.uptimeMillis();
+        if (now - lastSentAt >= interval) {
+            cancelTrailing();
+            sendPending(now);
+        } else if (!isTrailingScheduled) {
+            isTrailingScheduled = true;
+            handler.postAtTime(trailingSend, lastSentAt + interval);
+        }
+    }
+
+    // Where a snap or fling came to rest; supersedes anything pending
+    void settle(int x, int y) {
+        cancel();
+        lastSentAt = SystemClock.uptimeMillis();
+        sink.send(x, y, false, true);
+    }
+
+    void cancel() {
+        cancelTrailing();
+        hasPending = false;
+    }
+
+    private void cancelTrailing() {
+        if (isTrailingScheduled) {
+            handler.removeCallbacks(trailingSend);
+            isTrailingScheduled = false;
+        }
+    }
+
+    private void sendPending(long now) {
+        if (!hasPending) {
+            return;
+        }
+        hasPending = false;
+        lastSentAt = now;
+        sink.send(pendingX, pendingY, pendingDragging, false);
+    }
+}
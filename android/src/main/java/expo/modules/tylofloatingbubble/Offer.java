@@ -0,0 +1,452 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import expo.modules.core.arguments.ReadableArguments;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// One ride offer as shown by the bubble badge and the popup overlay. Travels
+// from the module to the service as a single Parcelable extra. The plain
+// fields and payload parsing live in OfferFields, which has no Android
+// dependencies.
+final class Offer extends OfferFields implements Parcelable {
+    static final String EXTRA = "offer";
+
+    // Change groups reported by update(), so callers only refresh what moved
+    static final int CHANGED_PRIORITY = 1;
+    static final int CHANGED_BADGE = 1 << 1;
+    static final int CHANGED_ICON = 1 << 2;
+    static final int CHANGED_POPUP = 1 << 3;
+    static final int CHANGED_EXPIRY = 1 << 4;
+    static final int CHANGED_TEXT = 1 << 5; // Title and subtitle; no view shows them, but they are journaled
+
+    // Parcel layout version; bump and append fields, never reorder
+    private static final int PARCEL_VERSION = 2;
+
+    // Value tags for extras in the stored layout (BubbleJournal); never renumber
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_BOOLEAN = 2;
+    private static final byte VALUE_INT = 3;
+    private static final byte VALUE_LONG = 4;
+    private static final byte VALUE_DOUBLE = 5;
+    private static final byte VALUE_BUNDLE = 6;
+    private static final byte VALUE_LIST = 7;
+    private static final int MAX_EXTRAS_DEPTH = 16;
+
+    // Caller fields the bubble does not use (e.g. orderData), kept as structured values
+    Bundle extras;
+
+    Offer() {
+    }
+
+    static Offer fromArguments(ReadableArguments data) {
+        Offer offer = new Offer();
+        HashMap<String, Object> values = new HashMap<>();
+        for (String key : KNOWN_KEYS) {
+            if (data.containsKey(key)) {
+                values.put(key, data.get(key));
+            }
+        }
+        offer.applyPayload(values);
+
+        // Forward everything else as-is instead of stringifying it
+        Bundle extras = data.toBundle();
+        for (String key : KNOWN_KEYS) {
+            extras.remove(key);
+        }
+        for (String key : new ArrayList<>(extras.keySet())) {
+            if (extras.get(key) == null) {
+                extras.remove(key); // e.g. orderData: null from the JS helper
+            }
+        }
+        offer.extras = extras.isEmpty() ? null : extras;
+        return offer;
+    }
+
+    // Reads the payload in one step; null when the intent carries none
+    static Offer fromIntent(Intent intent) {
+        intent.setExtrasClassLoader(Offer.class.getClassLoader());
+        return intent.getParcelableExtra(EXTRA);
+    }
+
+    private Offer(Parcel in) {
+        int version = in.readInt();
+        id = in.readString();
+        priority = in.readInt();
+        showBadge = in.readInt() != 0;
+        badgeCount = in.readInt();
+
+        // Only strings that differ from the shared defaults are on the wire
+        int mask = in.readInt();
+        title = readIfSet(in, mask, 0, DEFAULT_TITLE);
+        subtitle = readIfSet(in, mask, 1, DEFAULT_SUBTITLE);
+        icon = readIfSet(in, mask, 2, DEFAULT_ICON);
+        popupTitle = readIfSet(in, mask, 3, DEFAULT_POPUP_TITLE);
+        popupSubtitle = readIfSet(in, mask, 4, DEFAULT_POPUP_SUBTITLE);
+        popupPrice = readIfSet(in, mask, 5, DEFAULT_POPUP_PRICE);
+        popupDuration = readIfSet(in, mask, 6, DEFAULT_POPUP_DURATION);
+        popupDistance = readIfSet(in, mask, 7, DEFAULT_POPUP_DISTANCE);
+        popupPickupTitle = readIfSet(in, mask, 8, DEFAULT_POPUP_PICKUP_TITLE);
+        popupPickupAddress = readIfSet(in, mask, 9, DEFAULT_POPUP_PICKUP_ADDRESS);
+        popupDestinationTitle = readIfSet(in, mask, 10, DEFAULT_POPUP_DESTINATION_TITLE);
+        popupDestinationAddress = readIfSet(in, mask, 11, DEFAULT_POPUP_DESTINATION_ADDRESS);
+        popupPaymentMethod = readIfSet(in, mask, 12, DEFAULT_POPUP_PAYMENT_METHOD);
+        popupAcceptText = readIfSet(in, mask, 13, DEFAULT_POPUP_ACCEPT_TEXT);
+        popupRejectText = readIfSet(in, mask, 14, DEFAULT_POPUP_REJECT_TEXT);
+
+        extras = in.readBundle(Offer.class.getClassLoader());
+        // Fields appended by later versions go here, guarded by version checks
+        if (version >= 2) {
+            expiresAt = in.readLong();
+            receivedAt = in.readLong();
+        }
+    }
+
+    @Override
+    public void writeToParcel(Parcel out, int flags) {
+        out.writeInt(PARCEL_VERSION);
+        out.writeString(id);
+        out.writeInt(priority);
+        out.writeInt(showBadge ? 1 : 0);
+        out.writeInt(badgeCount);
+
+        int mask = 0;
+        mask |= bitIfSet(title, DEFAULT_TITLE, 0);
+        mask |= bitIfSet(subtitle, DEFAULT_SUBTITLE, 1);
+        mask |= bitIfSet(icon, DEFAULT_ICON, 2);
+        mask |= bitIfSet(popupTitle, DEFAULT_POPUP_TITLE, 3);
+        mask |= bitIfSet(popupSubtitle, DEFAULT_POPUP_SUBTITLE, 4);
+        mask |= bitIfSet(popupPrice, DEFAULT_POPUP_PRICE, 5);
+        mask |= bitIfSet(popupDuration, DEFAULT_POPUP_DURATION, 6);
+        mask |= bitIfSet(popupDistance, DEFAULT_POPUP_DISTANCE, 7);
+        mask |= bitIfSet(popupPickupTitle, DEFAULT_POPUP_PICKUP_TITLE, 8);
+        mask |= bitIfSet(popupPickupAddress, DEFAULT_POPUP_PICKUP_ADDRESS, 9);
+        mask |= bitIfSet(popupDestinationTitle, DEFAULT_POPUP_DESTINATION_TITLE, 10);
+        mask |= bitIfSet(popupDestinationAddress, DEFAULT_POPUP_DESTINATION_ADDRESS, 11);
+        mask |= bitIfSet(popupPaymentMethod, DEFAULT_POPUP_PAYMENT_METHOD, 12);
+        mask |= bitIfSet(popupAcceptText, DEFAULT_POPUP_ACCEPT_TEXT, 13);
+        mask |= bitIfSet(popupRejectText, DEFAULT_POPUP_REJECT_TEXT, 14);
+        out.writeInt(mask);
+
+        writeIfSet(out, mask, 0, title);
+        writeIfSet(out, mask, 1, subtitle);
+        writeIfSet(out, mask, 2, icon);
+        writeIfSet(out, mask, 3, popupTitle);
+        writeIfSet(out, mask, 4, popupSubtitle);
+        writeIfSet(out, mask, 5, popupPrice);
+        writeIfSet(out, mask, 6, popupDuration);
+        writeIfSet(out, mask, 7, popupDistance);
+        writeIfSet(out, mask, 8, popupPickupTitle);
+        writeIfSet(out, mask, 9, popupPickupAddress);
+        writeIfSet(out, mask, 10, popupDestinationTitle);
+        writeIfSet(out, mask, 11, popupDestinationAddress);
+        writeIfSet(out, mask, 12, popupPaymentMethod);
+        writeIfSet(out, mask, 13, popupAcceptText);
+        writeIfSet(out, mask, 14, popupRejectText);
+
+        out.writeBundle(extras);
+        out.writeLong(expiresAt);
+        out.writeLong(receivedAt);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    public static final Parcelable.Creator<Offer> CREATOR = new Parcelable.Creator<Offer>() {
+        @Override
+        public Offer createFromParcel(Parcel in) {
+            return new Offer(in);
+        }
+
+        @Override
+        public Offer[] newArray(int size) {
+            return new Offer[size];
+        }
+    };
+
+    // Stored layout for the journal. Parcel bytes are not fit for disk (their format may
+    // change with the platform), so fields and extras are written explicitly. Extras
+    // hold what JS sends: strings, booleans, numbers, maps and arrays; other values
+    // are left out.
+    void writeTo(DataOutputStream out) throws IOException {
+        writeFields(out);
+        writeBundle(out, extras, 0);
+    }
+
+    static Offer readFrom(DataInputStream in) throws IOException {
+        Offer offer = new Offer();
+        offer.readFields(in);
+        Bundle extras = readBundle(in, 0);
+        offer.extras = extras != null && !extras.isEmpty() ? extras : null;
+        return offer;
+    }
+
+    private static void writeBundle(DataOutputStream out, Bundle bundle, int depth) throws IOException {
+        if (bundle == null) {
+            out.writeInt(-1);
+            return;
+        }
+        ArrayList<String> keys = new ArrayList<>();
+        for (String key : bundle.keySet()) {
+            if (isStorable(bundle.get(key), depth)) {
+                keys.add(key);
+            } else {
+                android.util.Log.d("FloatingBubble", "Extra not journaled, unsupported value: " + key);
+            }
+        }
+        out.writeInt(keys.size());
+        for (String key : keys) {
+            writeString(out, key);
+            writeValue(out, bundle.get(key), depth);
+        }
+    }
+
+    private static Bundle readBundle(DataInputStream in, int depth) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        Bundle bundle = new Bundle();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            Object value = readValue(in, depth);
+            if (value == null) {
+                bundle.putString(key, null);
+            } else if (value instanceof String) {
+                bundle.putString(key, (String) value);
+            } else if (value instanceof Boolean) {
+                bundle.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Integer) {
+                bundle.putInt(key, (Integer) value);
+            } else if (value instanceof Long) {
+                bundle.putLong(key, (Long) value);
+            } else if (value instanceof Double) {
+                bundle.putDouble(key, (Double) value);
+            } else if (value instanceof Bundle) {
+                bundle.putBundle(key, (Bundle) value);
+            } else {
+                bundle.putSerializable(key, (ArrayList<?>) value);
+            }
+        }
+        return bundle;
+    }
+
+    private static boolean isStorable(Object value, int depth) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Number) {
+            return true;
+        }
+        if (depth >= MAX_EXTRAS_DEPTH) {
+            return false;
+        }
+        if (value instanceof Bundle) {
+            return true;
+        }
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (!isStorable(element, depth + 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, int depth) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Number) {
+            // JS numbers arrive as doubles; floats and the like are widened
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Bundle) {
+            out.writeByte(VALUE_BUNDLE);
+            writeBundle(out, (Bundle) value, depth + 1);
+        } else {
+            List<?> list = (List<?>) value;
+            out.writeByte(VALUE_LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element, depth + 1);
+            }
+        }
+    }
+
+    private static Object readValue(DataInputStream in, int depth) throws IOException {
+        if (depth > MAX_EXTRAS_DEPTH) {
+            throw new IOException("Extras nested too deeply");
+        }
+        byte type = in.readByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(in);
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_INT:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_BUNDLE:
+                return readBundle(in, depth + 1);
+            case VALUE_LIST:
+                int size = in.readInt();
+                if (size < 0 || size > in.available()) {
+                    throw new IOException("Bad list size: " + size);
+                }
+                ArrayList<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, depth + 1));
+                }
+                return list;
+            default:
+                throw new IOException("Unknown extra type: " + type);
+        }
+    }
+
+    private static int bitIfSet(String value, String fallback, int bit) {
+        return value.equals(fallback) ? 0 : 1 << bit;
+    }
+
+    private static void writeIfSet(Parcel out, int mask, int bit, String value) {
+        if ((mask & (1 << bit)) != 0) {
+            out.writeString(value);
+        }
+    }
+
+    private static String readIfSet(Parcel in, int mask, int bit, String fallback) {
+        return (mask & (1 << bit)) != 0 ? in.readString() : fallback;
+    }
+
+    // Applies only the extras present in the intent and reports which groups changed
+    int update(Intent intent) {
+        int changed = 0;
+        String value;
+
+        if (intent.hasExtra("priority")) {
+            int newPriority = intent.getIntExtra("priority", priority);
+            if (newPriority != priority) {
+                priority = newPriority;
+                changed |= CHANGED_PRIORITY;
+            }
+        }
+
+        if (intent.hasExtra("expiresAt")) {
+            long newExpiresAt = Math.max(0L, intent.getLongExtra("expiresAt", expiresAt));
+            if (newExpiresAt != expiresAt) {
+                expiresAt = newExpiresAt;
+                changed |= CHANGED_EXPIRY;
+            }
+        }
+
+        if ((value = changed(intent, "title", title)) != null) {
+            title = value;
+            changed |= CHANGED_TEXT;
+        }
+        if ((value = changed(intent, "subtitle", subtitle)) != null) {
+            subtitle = value;
+            changed |= CHANGED_TEXT;
+        }
+        if (intent.hasExtra("showBadge")) {
+            boolean newShowBadge = intent.getBooleanExtra("showBadge", showBadge);
+            if (newShowBadge != showBadge) {
+                showBadge = newShowBadge;
+                changed |= CHANGED_BADGE;
+            }
+        }
+        if (intent.hasExtra("badgeCount")) {
+            int newBadgeCount = intent.getIntExtra("badgeCount", badgeCount);
+            if (newBadgeCount != badgeCount) {
+                badgeCount = newBadgeCount;
+                changed |= CHANGED_BADGE;
+            }
+        }
+        if ((value = changed(intent, "icon", icon)) != null) {
+            icon = value;
+            changed |= CHANGED_ICON;
+        }
+
+        if ((value = changed(intent, "popupTitle", popupTitle)) != null) {
+            popupTitle = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupSubtitle", popupSubtitle)) != null) {
+            popupSubtitle = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupPrice", popupPrice)) != null) {
+            popupPrice = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupDuration", popupDuration)) != null) {
+            popupDuration = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupDistance", popupDistance)) != null) {
+            popupDistance = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupPickupTitle", popupPickupTitle)) != null) {
+            popupPickupTitle = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupPickupAddress", popupPickupAddress)) != null) {
+            popupPickupAddress = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupDestinationTitle", popupDestinationTitle)) != null) {
+            popupDestinationTitle = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupDestinationAddress", popupDestinationAddress)) != null) {
+            popupDestinationAddress = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupPaymentMethod", popupPaymentMethod)) != null) {
+            popupPaymentMethod = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupAcceptText", popupAcceptText)) != null) {
+            popupAcceptText = value;
+            changed |= CHANGED_POPUP;
+        }
+        if ((value = changed(intent, "popupRejectText", popupRejectText)) != null) {
+            popupRejectText = value;
+            changed |= CHANGED_POPUP;
+        }
+        return changed;
+    }
+
+    // Returns the new value when the extra is present, non-empty and differs, otherwise null
+    private static String changed(Intent intent, String key, String current) {
+        String value = intent.getStringExtra(key);
+        return value != null && !value.isEmpty() && !value.equals(current) ? value : null;
+    }
+}
@@ -0,0 +1,215 @@
+package expo.modules.tylofloatingbubble;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Plain offer fields and payload parsing, free of Android types so the
+// per-show parsing path can be exercised on a plain JVM. Offer adds the
+// Parcelable transport and the caller's extra fields on top.
+class OfferFields {
+    // Shared defaults. Unset fields keep these references instead of per-offer copies.
+    static final String DEFAULT_TITLE = "New Order";
+    static final String DEFAULT_SUBTITLE = "Tap to view details";
+    static final String DEFAULT_ICON = "tylo_circle";
+    static final String DEFAULT_POPUP_TITLE = "New Ride Request";
+    static final String DEFAULT_POPUP_SUBTITLE = "Tap to view details";
+    static final String DEFAULT_POPUP_PRICE = "$24.50";
+    static final String DEFAULT_POPUP_DURATION = "15 min";
+    static final String DEFAULT_POPUP_DISTANCE = "8.2 km";
+    static final String DEFAULT_POPUP_PICKUP_TITLE = "Pickup Location";
+    static final String DEFAULT_POPUP_PICKUP_ADDRESS = "123 Main Street, Downtown Area";
+    static final String DEFAULT_POPUP_DESTINATION_TITLE = "Destination";
+    static final String DEFAULT_POPUP_DESTINATION_ADDRESS = "456 Business Center, Tech District";
+    static final String DEFAULT_POPUP_PAYMENT_METHOD = "Cash";
+    static final String DEFAULT_POPUP_ACCEPT_TEXT = "Accept";
+    static final String DEFAULT_POPUP_REJECT_TEXT = "Reject";
+
+    // Keys the payload understands; anything else is forwarded untouched in extras
+    static final String[] KNOWN_KEYS = {
+        "offerId", "priority", "title", "subtitle", "showBadge", "badgeCount", "icon",
+        "popupTitle", "popupSubtitle", "popupPrice", "popupDuration", "popupDistance",
+        "popupPickupTitle", "popupPickupAddress", "popupDestinationTitle", "popupDestinationAddress",
+        "popupPaymentMethod", "popupAcceptText", "popupRejectText", "expiresAt", "autoRequestPermission"
+    };
+
+    String id;
+    int priority;
+    long sequence;
+    // Epoch millis; 0 means the offer never expires
+    long expiresAt;
+    // Epoch millis when the service queued it; the countdown ring runs from here to expiresAt
+    long receivedAt;
+
+    // Bubble params
+    String title = DEFAULT_TITLE;
+    String subtitle = DEFAULT_SUBTITLE;
+    boolean showBadge = true;
+    int badgeCount = 1;
+    String icon = DEFAULT_ICON;
+
+    // Popup params
+    String popupTitle = DEFAULT_POPUP_TITLE;
+    String popupSubtitle = DEFAULT_POPUP_SUBTITLE;
+    String popupPrice = DEFAULT_POPUP_PRICE;
+    String popupDuration = DEFAULT_POPUP_DURATION;
+    String popupDistance = DEFAULT_POPUP_DISTANCE;
+    String popupPickupTitle = DEFAULT_POPUP_PICKUP_TITLE;
+    String popupPickupAddress = DEFAULT_POPUP_PICKUP_ADDRESS;
+    String popupDestinationTitle = DEFAULT_POPUP_DESTINATION_TITLE;
+    String popupDestinationAddress = DEFAULT_POPUP_DESTINATION_ADDRESS;
+    String popupPaymentMethod = DEFAULT_POPUP_PAYMENT_METHOD;
+    String popupAcceptText = DEFAULT_POPUP_ACCEPT_TEXT;
+    String popupRejectText = DEFAULT_POPUP_REJECT_TEXT;
+
+    // Stored layout of the fields (BubbleJournal). Only strings that differ from the
+    // shared defaults are written, flagged in a mask; the order never changes
+    // without a new journal version.
+    void writeFields(DataOutputStream out) throws IOException {
+        writeString(out, id);
+        out.writeInt(priority);
+        out.writeBoolean(showBadge);
+        out.writeInt(badgeCount);
+        out.writeLong(expiresAt);
+        out.writeLong(receivedAt);
+
+        String[] strings = strings();
+        String[] defaults = DEFAULT_STRINGS;
+        int mask = 0;
+        for (int i = 0; i < strings.length; i++) {
+            if (!strings[i].equals(defaults[i])) {
+                mask |= 1 << i;
+            }
+        }
+        out.writeInt(mask);
+        for (int i = 0; i < strings.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                writeString(out, strings[i]);
+            }
+        }
+    }
+
+    void readFields(DataInputStream in) throws IOException {
+        id = readString(in);
+        priority = in.readInt();
+        showBadge = in.readBoolean();
+        badgeCount = in.readInt();
+        expiresAt = in.readLong();
+        receivedAt = in.readLong();
+
+        int mask = in.readInt();
+        String[] strings = new String[DEFAULT_STRINGS.length];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = (mask & (1 << i)) != 0 ? pick(readString(in), DEFAULT_STRINGS[i]) : DEFAULT_STRINGS[i];
+        }
+        title = strings[0];
+        subtitle = strings[1];
+        icon = strings[2];
+        popupTitle = strings[3];
+        popupSubtitle = strings[4];
+        popupPrice = strings[5];
+        popupDuration = strings[6];
+        popupDistance = strings[7];
+        popupPickupTitle = strings[8];
+        popupPickupAddress = strings[9];
+        popupDestinationTitle = strings[10];
+        popupDestinationAddress = strings[11];
+        popupPaymentMethod = strings[12];
+        popupAcceptText = strings[13];
+        popupRejectText = strings[14];
+    }
+
+    // Same order as DEFAULT_STRINGS
+    private String[] strings() {
+        return new String[] {
+            title, subtitle, icon, popupTitle, popupSubtitle, popupPrice, popupDuration, popupDistance,
+            popupPickupTitle, popupPickupAddress, popupDestinationTitle, popupDestinationAddress,
+            popupPaymentMethod, popupAcceptText, popupRejectText
+        };
+    }
+
+    private static final String[] DEFAULT_STRINGS = {
+        DEFAULT_TITLE, DEFAULT_SUBTITLE, DEFAULT_ICON, DEFAULT_POPUP_TITLE, DEFAULT_POPUP_SUBTITLE,
+        DEFAULT_POPUP_PRICE, DEFAULT_POPUP_DURATION, DEFAULT_POPUP_DISTANCE, DEFAULT_POPUP_PICKUP_TITLE,
+        DEFAULT_POPUP_PICKUP_ADDRESS, DEFAULT_POPUP_DESTINATION_TITLE, DEFAULT_POPUP_DESTINATION_ADDRESS,
+        DEFAULT_POPUP_PAYMENT_METHOD, DEFAULT_POPUP_ACCEPT_TEXT, DEFAULT_POPUP_REJECT_TEXT
+    };
+
+    // Length-prefixed UTF-8, -1 for null; not limited to 64KB like writeUTF
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new EOFException("String runs past the record");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Reads the known keys from a JS payload; values arrive as String, Number or Boolean
+    void applyPayload(Map<String, ?> values) {
+        id = string(values, "offerId", null);
+        priority = integer(values, "priority", 0);
+        expiresAt = Math.max(0L, longValue(values, "expiresAt", 0L));
+
+        title = pick(string(values, "title", null), DEFAULT_TITLE);
+        subtitle = pick(string(values, "subtitle", null), DEFAULT_SUBTITLE);
+        showBadge = bool(values, "showBadge", true);
+        badgeCount = integer(values, "badgeCount", 1);
+        icon = pick(string(values, "icon", null), DEFAULT_ICON);
+
+        popupTitle = pick(string(values, "popupTitle", null), DEFAULT_POPUP_TITLE);
+        popupSubtitle = pick(string(values, "popupSubtitle", null), DEFAULT_POPUP_SUBTITLE);
+        popupPrice = pick(string(values, "popupPrice", null), DEFAULT_POPUP_PRICE);
+        popupDuration = pick(string(values, "popupDuration", null), DEFAULT_POPUP_DURATION);
+        popupDistance = pick(string(values, "popupDistance", null), DEFAULT_POPUP_DISTANCE);
+        popupPickupTitle = pick(string(values, "popupPickupTitle", null), DEFAULT_POPUP_PICKUP_TITLE);
+        popupPickupAddress = pick(string(values, "popupPickupAddress", null), DEFAULT_POPUP_PICKUP_ADDRESS);
+        popupDestinationTitle = pick(string(values, "popupDestinationTitle", null), DEFAULT_POPUP_DESTINATION_TITLE);
+        popupDestinationAddress = pick(string(values, "popupDestinationAddress", null), DEFAULT_POPUP_DESTINATION_ADDRESS);
+        popupPaymentMethod = pick(string(values, "popupPaymentMethod", null), DEFAULT_POPUP_PAYMENT_METHOD);
+        popupAcceptText = pick(string(values, "popupAcceptText", null), DEFAULT_POPUP_ACCEPT_TEXT);
+        popupRejectText = pick(string(values, "popupRejectText", null), DEFAULT_POPUP_REJECT_TEXT);
+    }
+
+    private static String string(Map<String, ?> values, String key, String fallback) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : fallback;
+    }
+
+    // JS numbers arrive as doubles
+    private static int integer(Map<String, ?> values, String key, int fallback) {
+        Object value = values.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : fallback;
+    }
+
+    private static long longValue(Map<String, ?> values, String key, long fallback) {
+        Object value = values.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : fallback;
+    }
+
+    private static boolean bool(Map<String, ?> values, String key, boolean fallback) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : fallback;
+    }
+
+    static String pick(String value, String fallback) {
+        return value != null && !value.isEmpty() ? value : fallback;
+    }
+}
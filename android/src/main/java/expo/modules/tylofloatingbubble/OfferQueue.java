@@ -0,0 +1,188 @@
+package expo.modules.tylofloatingbubble;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+
+// Bounded queue of pending offers, ordered by priority and then by arrival.
+// Backed by an indexed binary heap so the best offer is picked in O(log n)
+// and an offer re-sent with the same id replaces the stale entry in place.
+final class OfferQueue {
+    private final Offer[] heap;
+    private final HashMap<String, Integer> positions;
+    private int size;
+    private long nextSequence;
+    private long nextGeneratedId;
+
+    OfferQueue(int capacity) {
+        heap = new Offer[capacity];
+        positions = new HashMap<>(capacity * 2);
+    }
+
+    // Returns the offer that no longer fits: the lowest-ranked pending one when a
+    // full queue made room, the new offer itself when it ranks below every pending
+    // one, or null when nothing was left out
+    Offer offer(Offer offer) {
+        if (offer.id == null || offer.id.isEmpty()) {
+            // Restored offers may already hold generated ids
+            do {
+                offer.id = "offer-" + (++nextGeneratedId);
+            } while (positions.containsKey(offer.id));
+        }
+
+        Integer existing = positions.get(offer.id);
+        if (existing != null) {
+            // Replace the stale entry but keep its place in the arrival order
+            int index = existing;
+            offer.sequence = heap[index].sequence;
+            place(offer, index);
+            siftUp(index);
+            siftDown(positions.get(offer.id));
+            return null;
+        }
+
+        offer.sequence = nextSequence++;
+        Offer evicted = null;
+        if (size == heap.length) {
+            int worst = worstIndex();
+            if (!ranksAbove(offer, heap[worst])) {
+                return offer;
+            }
+            evicted = heap[worst];
+            removeAt(worst);
+        }
+
+        heap[size] = offer;
+        positions.put(offer.id, size);
+        siftUp(size++);
+        return evicted;
+    }
+
+    Offer peek() {
+        return size > 0 ? heap[0] : null;
+    }
+
+    Offer poll() {
+        if (size == 0) {
+            return null;
+        }
+        Offer best = heap[0];
+        removeAt(0);
+        return best;
+    }
+
+    Offer get(String id) {
+        Integer index = positions.get(id);
+        return index != null ? heap[index] : null;
+    }
+
+    boolean remove(String id) {
+        Integer index = positions.get(id);
+        if (index == null) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int capacity() {
+        return heap.length;
+    }
+
+    // Pending offers in arrival order, so re-offering them rebuilds the same queue
+    Offer[] toArrayInArrivalOrder() {
+        Offer[] offers = Arrays.copyOf(heap, size);
+        Arrays.sort(offers, new Comparator<Offer>() {
+            @Override
+            public int compare(Offer a, Offer b) {
+                return Long.compare(a.sequence, b.sequence);
+            }
+        });
+        return offers;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i] = null;
+        }
+        positions.clear();
+        size = 0;
+    }
+
+    private void removeAt(int index) {
+        Offer removed = heap[index];
+        positions.remove(removed.id);
+        size--;
+        if (index == size) {
+            heap[size] = null;
+            return;
+        }
+        Offer moved = heap[size];
+        heap[size] = null;
+        place(moved, index);
+        siftUp(index);
+        siftDown(positions.get(moved.id));
+    }
+
+    // The lowest ranked offer is always a leaf, so only the second half is scanned
+    private int worstIndex() {
+        int worst = size / 2;
+        for (int i = worst + 1; i < size; i++) {
+            if (ranksAbove(heap[worst], heap[i])) {
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    private void siftUp(int index) {
+        Offer offer = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksAbove(offer, heap[parent])) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(offer, index);
+    }
+
+    private void siftDown(int index) {
+        Offer offer = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && ranksAbove(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!ranksAbove(heap[child], offer)) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(offer, index);
+    }
+
+    private void place(Offer offer, int index) {
+        heap[index] = offer;
+        positions.put(offer.id, index);
+    }
+
+    private static boolean ranksAbove(Offer a, Offer b) {
+        if (a.priority != b.priority) {
+            return a.priority > b.priority;
+        }
+        return a.sequence < b.sequence;
+    }
+}
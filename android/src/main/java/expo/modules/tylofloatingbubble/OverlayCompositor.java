@@ -0,0 +1,144 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+// One shared overlay window for the transient layers: the delete zone while a
+// drag is in progress and the popup while it is open. They are never shown
+// together, so the window takes the size and flags of whichever layer is up
+// instead of each layer holding a window and surface of its own. With no
+// layer up the root goes GONE, which releases the surface and its buffers
+// while keeping the window, so the next show needs no addView.
+final class OverlayCompositor {
+    // Window operations go through the service, which keeps the live window count
+    interface Windows {
+        void add(View root, WindowManager.LayoutParams params);
+
+        void update(View root, WindowManager.LayoutParams params);
+
+        void remove(View root);
+    }
+
+    private static final int BASE_FLAGS = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
+        | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN;
+
+    private final Windows windows;
+    private final BubbleGeometry geometry; // The service's; current after each configuration change
+    private final FrameLayout root;
+    private final WindowManager.LayoutParams params;
+    private boolean isAdded = false;
+    private View layer; // Layer currently shown, null when hidden
+    private boolean isDeleteZone = false; // Whether the params are laid out for the delete zone
+
+    OverlayCompositor(Context context, Windows windows, BubbleGeometry geometry) {
+        this.windows = windows;
+        this.geometry = geometry;
+        root = new FrameLayout(context);
+        root.setVisibility(View.GONE);
+        params = new WindowManager.LayoutParams(
+            WindowManager.LayoutParams.MATCH_PARENT,
+            WindowManager.LayoutParams.MATCH_PARENT,
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY
+                : WindowManager.LayoutParams.TYPE_PHONE,
+            BASE_FLAGS,
+            PixelFormat.TRANSLUCENT
+        );
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            params.layoutInDisplayCutoutMode = WindowManager.LayoutParams.LAYOUT_IN_DISPLAY_CUTOUT_MODE_SHORT_EDGES;
+        }
+    }
+
+    // Zone-sized at the bottom center of the safe area and not touchable; the drag keeps its touch stream on the bubble
+    void showDeleteZone(View zone) {
+        if (layer != null && layer != zone) {
+            return; // The popup is up, and nothing is dragged underneath it
+        }
+        layoutDeleteZone();
+        params.flags = BASE_FLAGS | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        isDeleteZone = true;
+        show(zone);
+    }
+
+    private void layoutDeleteZone() {
+        params.width = geometry.deleteAreaSize;
+        params.height = geometry.deleteAreaSize;
+        params.gravity = Gravity.BOTTOM | Gravity.LEFT;
+        params.x = geometry.deleteAreaCenterX - geometry.deleteAreaRadius;
+        params.y = geometry.deleteAreaBottomOffset;
+    }
+
+    // The popup is MATCH_PARENT and follows the display by itself; the zone is moved to the new safe area
+    void onGeometryChanged() {
+        if (isDeleteZone) {
+            layoutDeleteZone();
+            if (isAdded && layer != null) {
+                windows.update(root, params);
+            }
+        }
+    }
+
+    void showPopup(View popup) {
+        if (layer != null && layer != popup) {
+            hide(layer); // A delete zone left from a drag gives way
+        }
+        params.width = WindowManager.LayoutParams.MATCH_PARENT;
+        params.height = WindowManager.LayoutParams.MATCH_PARENT;
+        params.gravity = Gravity.TOP | Gravity.START;
+        params.x = 0;
+        params.y = 0;
+        params.flags = BASE_FLAGS;
+        isDeleteZone = false;
+        show(popup);
+    }
+
+    // Only hides the given layer if it is the one showing
+    void hide(View view) {
+        if (layer != view) {
+            return;
+        }
+        root.removeView(view);
+        layer = null;
+        root.setVisibility(View.GONE);
+    }
+
+    boolean isShowing(View view) {
+        return layer != null && layer == view;
+    }
+
+    void release() {
+        root.removeAllViews();
+        layer = null;
+        if (isAdded) {
+            windows.remove(root);
+            isAdded = false;
+        }
+    }
+
+    private void show(View view) {
+        if (layer == view) {
+            return;
+        }
+        if (view.getParent() != root) {
+            if (view.getParent() instanceof ViewGroup) {
+                ((ViewGroup) view.getParent()).removeView(view);
+            }
+            root.addView(view, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        }
+        layer = view;
+        root.setVisibility(View.VISIBLE);
+        if (!isAdded) {
+            windows.add(root, params);
+            isAdded = true;
+        } else {
+            windows.update(root, params);
+        }
+    }
+}
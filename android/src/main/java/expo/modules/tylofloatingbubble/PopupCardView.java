@@ -0,0 +1,507 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.Button;
+
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+import java.util.List;
+
+// Flat renderer for the ride popup: the whole card is one View drawn with
+// Canvas. Text is laid out into StaticLayouts that are only rebuilt when their
+// string or the card width changes, and Accept/Reject are hit-tested regions.
+// Mirrors the sizes and colors of the PopupViewHolder view tree. The card reads
+// as one description, and Accept/Reject are exposed to accessibility services
+// as virtual buttons.
+final class PopupCardView extends View {
+    private static final int PADDING = 24;
+    private static final int SECTION_GAP = 20;
+    private static final int DOT_SIZE = 12;
+    private static final int DOT_GAP = 12;
+    private static final int BUTTON_MIN_HEIGHT_DP = 48;
+    private static final String PAYMENT_ICON = "💳";
+    private static final String PAYMENT_LABEL = "Metode Pembayaran";
+
+    // Virtual view ids for the buttons
+    static final int VIRTUAL_ACCEPT = 0;
+    static final int VIRTUAL_REJECT = 1;
+
+    private final PopupViewHolder.Listener listener;
+
+    private final Paint cardPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint pricePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint pickupDotPaint = new Paint();
+    private final Paint destinationDotPaint = new Paint();
+    private final Paint acceptPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint rejectPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Text slots; styles and widths are static so layouts can be prepared before the card exists
+    static final int SLOT_TITLE = 0;
+    static final int SLOT_SUBTITLE = 1;
+    static final int SLOT_PRICE = 2;
+    static final int SLOT_DURATION_DISTANCE = 3;
+    static final int SLOT_PICKUP_TITLE = 4;
+    static final int SLOT_PICKUP_ADDRESS = 5;
+    static final int SLOT_DESTINATION_TITLE = 6;
+    static final int SLOT_DESTINATION_ADDRESS = 7;
+    static final int SLOT_PAYMENT_ICON = 8;
+    static final int SLOT_PAYMENT_LABEL = 9;
+    static final int SLOT_PAYMENT_TYPE = 10;
+    static final int SLOT_ACCEPT = 11;
+    static final int SLOT_REJECT = 12;
+    static final int SLOT_COUNT = 13;
+
+    private static final float[] SLOT_SIZES_SP = {20, 14, 28, 14, 12, 14, 12, 14, 20, 12, 14, 16, 16};
+    private static final String[] SLOT_COLORS = {
+        "#1F2937", "#6B7280", "#FFFFFF", "#FFFFFF", "#10B981", "#1F2937", "#EF4444", "#1F2937",
+        "#1F2937", "#6B7280", "#1F2937", "#FFFFFF", "#6B7280"
+    };
+    private static final boolean[] SLOT_BOLD = {true, false, true, false, true, false, true, false, false, false, true, true, true};
+    private static final boolean[] SLOT_CENTERED = {true, true, true, true, false, false, false, false, false, false, false, true, true};
+
+    private final TextSlot[] slots = new TextSlot[SLOT_COUNT];
+    private final TextSlot title;
+    private final TextSlot subtitle;
+    private final TextSlot price;
+    private final TextSlot durationDistance;
+    private final TextSlot pickupTitle;
+    private final TextSlot pickupAddress;
+    private final TextSlot destinationTitle;
+    private final TextSlot destinationAddress;
+    private final TextSlot paymentIcon;
+    private final TextSlot paymentLabel;
+    private final TextSlot paymentType;
+    private final TextSlot acceptText;
+    private final TextSlot rejectText;
+
+    // Computed in onMeasure, read by onDraw and hit-testing
+    private final RectF priceCardRect = new RectF();
+    private final RectF acceptRect = new RectF();
+    private final RectF rejectRect = new RectF();
+    private int headerTop;
+    private int locationTop;
+    private int paymentTop;
+    private final int buttonMinHeight;
+
+    private RectF pressedRect;
+    private final ButtonAccessibility accessibility;
+
+    PopupCardView(Context context, PopupTextCache textCache, PopupViewHolder.Listener listener) {
+        super(context);
+        this.listener = listener;
+
+        cardPaint.setColor(Color.WHITE);
+        pricePaint.setColor(Color.parseColor("#10B981"));
+        pickupDotPaint.setColor(Color.parseColor("#10B981"));
+        destinationDotPaint.setColor(Color.parseColor("#EF4444"));
+        acceptPaint.setColor(Color.parseColor("#10B981"));
+        rejectPaint.setColor(Color.parseColor("#F9FAFB"));
+
+        android.util.DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            slots[slot] = new TextSlot(slot, slotPaint(slot, displayMetrics), textCache);
+        }
+        title = slots[SLOT_TITLE];
+        subtitle = slots[SLOT_SUBTITLE];
+        price = slots[SLOT_PRICE];
+        durationDistance = slots[SLOT_DURATION_DISTANCE];
+        pickupTitle = slots[SLOT_PICKUP_TITLE];
+        pickupAddress = slots[SLOT_PICKUP_ADDRESS];
+        destinationTitle = slots[SLOT_DESTINATION_TITLE];
+        destinationAddress = slots[SLOT_DESTINATION_ADDRESS];
+        paymentIcon = slots[SLOT_PAYMENT_ICON];
+        paymentLabel = slots[SLOT_PAYMENT_LABEL];
+        paymentType = slots[SLOT_PAYMENT_TYPE];
+        acceptText = slots[SLOT_ACCEPT];
+        rejectText = slots[SLOT_REJECT];
+        paymentIcon.text = PAYMENT_ICON;
+        paymentLabel.text = PAYMENT_LABEL;
+
+        buttonMinHeight = (int) TypedValue.applyDimension(
+            TypedValue.COMPLEX_UNIT_DIP, BUTTON_MIN_HEIGHT_DP, displayMetrics);
+
+        // Rounded outline so the elevation shadow follows the card corners
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setOutlineProvider(new ViewOutlineProvider() {
+                @Override
+                public void getOutline(View view, Outline outline) {
+                    outline.setRoundRect(0, 0, view.getWidth(), view.getHeight(), 24);
+                }
+            });
+            setElevation(12);
+        }
+        setClickable(true);
+        accessibility = new ButtonAccessibility();
+        ViewCompat.setAccessibilityDelegate(this, accessibility);
+    }
+
+    // Strings per slot for an offer, in slot order
+    static String[] slotTexts(Offer offer) {
+        String[] texts = new String[SLOT_COUNT];
+        texts[SLOT_TITLE] = offer.popupTitle;
+        texts[SLOT_SUBTITLE] = offer.popupSubtitle;
+        texts[SLOT_PRICE] = offer.popupPrice;
+        texts[SLOT_DURATION_DISTANCE] = "⏱ " + offer.popupDuration + " • " + offer.popupDistance;
+        texts[SLOT_PICKUP_TITLE] = offer.popupPickupTitle;
+        texts[SLOT_PICKUP_ADDRESS] = offer.popupPickupAddress;
+        texts[SLOT_DESTINATION_TITLE] = offer.popupDestinationTitle;
+        texts[SLOT_DESTINATION_ADDRESS] = offer.popupDestinationAddress;
+        texts[SLOT_PAYMENT_ICON] = PAYMENT_ICON;
+        texts[SLOT_PAYMENT_LABEL] = PAYMENT_LABEL;
+        texts[SLOT_PAYMENT_TYPE] = offer.popupPaymentMethod;
+        texts[SLOT_ACCEPT] = offer.popupAcceptText;
+        texts[SLOT_REJECT] = offer.popupRejectText;
+        return texts;
+    }
+
+    static TextPaint slotPaint(int slot, android.util.DisplayMetrics displayMetrics) {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, SLOT_SIZES_SP[slot], displayMetrics));
+        paint.setColor(Color.parseColor(SLOT_COLORS[slot]));
+        if (SLOT_BOLD[slot]) {
+            paint.setTypeface(Typeface.DEFAULT_BOLD);
+        }
+        return paint;
+    }
+
+    static Layout.Alignment slotAlignment(int slot) {
+        return SLOT_CENTERED[slot] ? Layout.Alignment.ALIGN_CENTER : Layout.Alignment.ALIGN_NORMAL;
+    }
+
+    // Layout width of a slot inside a card of the given width
+    static int slotWidth(int slot, int cardWidth, TextPaint paymentIconPaint) {
+        int inner = Math.max(0, cardWidth - 2 * PADDING);
+        switch (slot) {
+            case SLOT_PRICE:
+            case SLOT_DURATION_DISTANCE:
+                return Math.max(0, inner - 2 * PADDING);
+            case SLOT_PICKUP_TITLE:
+            case SLOT_PICKUP_ADDRESS:
+            case SLOT_DESTINATION_TITLE:
+            case SLOT_DESTINATION_ADDRESS:
+                return Math.max(0, inner - DOT_SIZE - DOT_GAP);
+            case SLOT_PAYMENT_ICON:
+                return paymentIconWidth(paymentIconPaint);
+            case SLOT_PAYMENT_LABEL:
+            case SLOT_PAYMENT_TYPE:
+                return Math.max(0, inner - paymentIconWidth(paymentIconPaint) - 12);
+            case SLOT_ACCEPT:
+                return Math.max(0, inner - 32);
+            case SLOT_REJECT:
+                return Math.max(0, inner - 24);
+            default:
+                return inner;
+        }
+    }
+
+    private static int paymentIconWidth(TextPaint paint) {
+        return Math.max(1, (int) Math.ceil(Layout.getDesiredWidth(PAYMENT_ICON, paint)));
+    }
+
+    void bind(Offer offer) {
+        String[] texts = slotTexts(offer);
+        boolean changed = false;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            changed |= slots[slot].setText(texts[slot]);
+        }
+        if (changed) {
+            // Card height depends on line counts, so re-measure only when text changed
+            requestLayout();
+            invalidate();
+            setContentDescription(describe());
+            accessibility.invalidateRoot();
+        }
+    }
+
+    // What the view tree's TextViews would read, in the same order, buttons aside
+    private String describe() {
+        StringBuilder description = new StringBuilder();
+        TextSlot[] read = {title, subtitle, price, durationDistance, pickupTitle, pickupAddress,
+            destinationTitle, destinationAddress, paymentLabel, paymentType};
+        for (TextSlot slot : read) {
+            if (slot.text.isEmpty()) {
+                continue;
+            }
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append(slot.text);
+        }
+        return description.toString();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        for (TextSlot slot : slots) {
+            slot.layout(slotWidth(slot.slot, width, paymentIcon.paint));
+        }
+        int inner = Math.max(0, width - 2 * PADDING);
+
+        int y = PADDING;
+        headerTop = y;
+        y += title.layout.getHeight() + 8;
+        y += subtitle.layout.getHeight() + SECTION_GAP;
+
+        int priceHeight = PADDING + price.layout.getHeight() + 8 + durationDistance.layout.getHeight() + PADDING;
+        priceCardRect.set(PADDING, y, PADDING + inner, y + priceHeight);
+        y += priceHeight + SECTION_GAP;
+
+        locationTop = y;
+        y += Math.max(DOT_SIZE, pickupTitle.layout.getHeight() + 4 + pickupAddress.layout.getHeight()) + 16;
+        y += Math.max(DOT_SIZE, destinationTitle.layout.getHeight() + 4 + destinationAddress.layout.getHeight());
+        y += SECTION_GAP;
+
+        paymentTop = y;
+        int paymentInfoHeight = paymentLabel.layout.getHeight() + paymentType.layout.getHeight();
+        y += Math.max(paymentIcon.layout.getHeight(), paymentInfoHeight) + 24;
+
+        int acceptHeight = Math.max(buttonMinHeight, acceptText.layout.getHeight() + 32);
+        acceptRect.set(PADDING, y, PADDING + inner, y + acceptHeight);
+        y += acceptHeight + 12;
+        int rejectHeight = Math.max(buttonMinHeight, rejectText.layout.getHeight() + 24);
+        rejectRect.set(PADDING, y, PADDING + inner, y + rejectHeight);
+        y += rejectHeight + PADDING;
+
+        setMeasuredDimension(width, resolveSize(y, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int width = getWidth();
+        canvas.drawRoundRect(0, 0, width, getHeight(), 24, 24, cardPaint);
+
+        int y = headerTop;
+        y += drawSlot(canvas, title, PADDING, y) + 8;
+        drawSlot(canvas, subtitle, PADDING, y);
+
+        canvas.drawRoundRect(priceCardRect, 16, 16, pricePaint);
+        y = (int) priceCardRect.top + PADDING;
+        y += drawSlot(canvas, price, PADDING * 2, y) + 8;
+        drawSlot(canvas, durationDistance, PADDING * 2, y);
+
+        y = locationTop;
+        y += drawLocation(canvas, pickupDotPaint, pickupTitle, pickupAddress, y) + 16;
+        drawLocation(canvas, destinationDotPaint, destinationTitle, destinationAddress, y);
+
+        y = paymentTop;
+        int iconWidth = paymentIcon.layout.getWidth();
+        int infoHeight = paymentLabel.layout.getHeight() + paymentType.layout.getHeight();
+        int rowHeight = Math.max(paymentIcon.layout.getHeight(), infoHeight);
+        drawSlot(canvas, paymentIcon, PADDING, y + (rowHeight - paymentIcon.layout.getHeight()) / 2);
+        int infoY = y + (rowHeight - infoHeight) / 2;
+        infoY += drawSlot(canvas, paymentLabel, PADDING + iconWidth + 12, infoY);
+        drawSlot(canvas, paymentType, PADDING + iconWidth + 12, infoY);
+
+        drawButton(canvas, acceptRect, acceptPaint, acceptText, 16);
+        drawButton(canvas, rejectRect, rejectPaint, rejectText, 12);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        float x = event.getX();
+        float y = event.getY();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                pressedRect = acceptRect.contains(x, y) ? acceptRect : rejectRect.contains(x, y) ? rejectRect : null;
+                invalidate();
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (pressedRect != null && !pressedRect.contains(x, y)) {
+                    pressedRect = null;
+                    invalidate();
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                RectF released = pressedRect;
+                pressedRect = null;
+                invalidate();
+                if (released == acceptRect && acceptRect.contains(x, y)) {
+                    click(VIRTUAL_ACCEPT);
+                } else if (released == rejectRect && rejectRect.contains(x, y)) {
+                    click(VIRTUAL_REJECT);
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                pressedRect = null;
+                invalidate();
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    // Touch and accessibility clicks both land here
+    private void click(int virtualViewId) {
+        accessibility.sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        if (virtualViewId == VIRTUAL_ACCEPT) {
+            listener.onAccept();
+        } else {
+            listener.onReject();
+        }
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return accessibility.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return accessibility.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        accessibility.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    private int drawLocation(Canvas canvas, Paint dotPaint, TextSlot slotTitle, TextSlot slotAddress, int y) {
+        int infoHeight = slotTitle.layout.getHeight() + 4 + slotAddress.layout.getHeight();
+        int rowHeight = Math.max(DOT_SIZE, infoHeight);
+        int dotTop = y + (rowHeight - DOT_SIZE) / 2;
+        canvas.drawRect(PADDING, dotTop, PADDING + DOT_SIZE, dotTop + DOT_SIZE, dotPaint);
+        int infoX = PADDING + DOT_SIZE + DOT_GAP;
+        int infoY = y + (rowHeight - infoHeight) / 2;
+        infoY += drawSlot(canvas, slotTitle, infoX, infoY) + 4;
+        drawSlot(canvas, slotAddress, infoX, infoY);
+        return rowHeight;
+    }
+
+    private void drawButton(Canvas canvas, RectF rect, Paint paint, TextSlot text, int padding) {
+        int save = canvas.save();
+        if (rect == pressedRect) {
+            // Same press feedback as the view-tree buttons
+            canvas.scale(0.95f, 0.95f, rect.centerX(), rect.centerY());
+        }
+        canvas.drawRoundRect(rect, 12, 12, paint);
+        int textTop = (int) (rect.top + (rect.height() - text.layout.getHeight()) / 2);
+        drawSlot(canvas, text, (int) rect.left + padding, textTop);
+        canvas.restoreToCount(save);
+    }
+
+    private static int drawSlot(Canvas canvas, TextSlot slot, int x, int y) {
+        canvas.save();
+        canvas.translate(x, y);
+        slot.layout.draw(canvas);
+        canvas.restore();
+        return slot.layout.getHeight();
+    }
+
+    // Accept and Reject as virtual buttons over their hit-test rects
+    private final class ButtonAccessibility extends ExploreByTouchHelper {
+        private final Rect bounds = new Rect();
+
+        ButtonAccessibility() {
+            super(PopupCardView.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            if (acceptRect.contains(x, y)) {
+                return VIRTUAL_ACCEPT;
+            }
+            if (rejectRect.contains(x, y)) {
+                return VIRTUAL_REJECT;
+            }
+            return INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            virtualViewIds.add(VIRTUAL_ACCEPT);
+            virtualViewIds.add(VIRTUAL_REJECT);
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            boolean accept = virtualViewId == VIRTUAL_ACCEPT;
+            String text = (accept ? acceptText : rejectText).text;
+            // The helper rejects a node with nothing to read
+            node.setText(text.isEmpty() ? (accept ? "Accept" : "Reject") : text);
+            node.setClassName(Button.class.getName());
+            (accept ? acceptRect : rejectRect).roundOut(bounds);
+            node.setBoundsInParent(bounds);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                return false;
+            }
+            click(virtualViewId);
+            return true;
+        }
+    }
+
+    // One string with its current layout; prepared layouts come from the shared cache
+    static final class TextSlot {
+        final int slot;
+        final TextPaint paint;
+        private final PopupTextCache textCache;
+        String text = "";
+        StaticLayout layout;
+        private int layoutWidth = -1;
+
+        TextSlot(int slot, TextPaint paint, PopupTextCache textCache) {
+            this.slot = slot;
+            this.paint = paint;
+            this.textCache = textCache;
+        }
+
+        // Returns true when the text changed
+        boolean setText(String value) {
+            String next = value != null ? value : "";
+            if (TextUtils.equals(text, next)) {
+                return false;
+            }
+            text = next;
+            layout = null;
+            return true;
+        }
+
+        StaticLayout layout(int width) {
+            if (layout == null || layoutWidth != width) {
+                layout = textCache != null
+                    ? textCache.layout(slot, width, text, paint)
+                    : buildLayout(text, paint, width, slotAlignment(slot));
+                layoutWidth = width;
+            }
+            return layout;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    static StaticLayout buildLayout(CharSequence text, TextPaint paint, int width, Layout.Alignment alignment) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                .setAlignment(alignment)
+                .setIncludePad(true)
+                .build();
+        }
+        return new StaticLayout(text, paint, width, alignment, 1f, 0f, true);
+    }
+}
@@ -0,0 +1,160 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Build;
+import android.text.PrecomputedText;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Popup text shaped ahead of time. When an offer arrives its popup strings
+// are laid out on a background thread, so opening the popup only attaches
+// finished layouts: StaticLayouts for the flat card, PrecomputedText (API 28+)
+// for the view tree. Entries are keyed by slot (which fixes the style), width
+// or text metrics params, and the text itself.
+final class PopupTextCache {
+    private static final int MAX_ENTRIES = 128; // About 10 offers' worth of strings per mode
+    // Rough retained sizes for trim reports: a layout's line table, precomputed text's per-char widths
+    private static final int LAYOUT_BYTES = 160;
+    private static final int LAYOUT_LINE_BYTES = 40;
+    private static final int MEASURED_CHAR_BYTES = 8;
+
+    static final AtomicLong hits = new AtomicLong();
+    static final AtomicLong misses = new AtomicLong(); // Shaped on the main thread at bind or measure time
+
+    private final LruCache<String, StaticLayout> layouts = new LruCache<>(MAX_ENTRIES);
+    private final LruCache<String, CharSequence> precomputed = new LruCache<>(MAX_ENTRIES);
+    // Background builds copy these, so no paint is shared with the main thread
+    private final TextPaint[] slotPaints = new TextPaint[PopupCardView.SLOT_COUNT];
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    PopupTextCache(DisplayMetrics displayMetrics) {
+        for (int slot = 0; slot < PopupCardView.SLOT_COUNT; slot++) {
+            slotPaints[slot] = PopupCardView.slotPaint(slot, displayMetrics);
+        }
+    }
+
+    private static String layoutKey(int slot, int width, String text) {
+        return slot + "|" + width + "|" + text;
+    }
+
+    private static String textKey(int slot, Object params, String text) {
+        return slot + "|" + params.hashCode() + "|" + text;
+    }
+
+    // Main thread, from measure: a prepared layout, or one built now
+    StaticLayout layout(int slot, int width, String text, TextPaint paint) {
+        String key = layoutKey(slot, width, text);
+        StaticLayout layout = layouts.get(key);
+        if (layout != null) {
+            hits.incrementAndGet();
+            return layout;
+        }
+        misses.incrementAndGet();
+        layout = PopupCardView.buildLayout(text, paint, width, PopupCardView.slotAlignment(slot));
+        layouts.put(key, layout);
+        return layout;
+    }
+
+    // Flat card: every slot at the width the card will measure it with
+    void prepareCard(Offer offer, final int cardWidth) {
+        final String[] texts = PopupCardView.slotTexts(offer);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int slot = 0; slot < texts.length; slot++) {
+                        String text = texts[slot] != null ? texts[slot] : "";
+                        int width = PopupCardView.slotWidth(slot, cardWidth, slotPaints[PopupCardView.SLOT_PAYMENT_ICON]);
+                        String key = layoutKey(slot, width, text);
+                        if (layouts.get(key) == null) {
+                            TextPaint paint = new TextPaint(slotPaints[slot]);
+                            layouts.put(key, PopupCardView.buildLayout(text, paint, width, PopupCardView.slotAlignment(slot)));
+                        }
+                    }
+                } catch (Exception e) {
+                    android.util.Log.e("FloatingBubble", "Failed to prepare popup layouts: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // View tree: params are read from the TextViews on the main thread, shaping happens in the background
+    void prepareViews(Offer offer, TextView[] slotViews) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            return; // No PrecomputedText; TextViews shape at measure time as before
+        }
+        final String[] texts = PopupCardView.slotTexts(offer);
+        final PrecomputedText.Params[] params = new PrecomputedText.Params[slotViews.length];
+        for (int slot = 0; slot < slotViews.length; slot++) {
+            if (slotViews[slot] != null) {
+                params[slot] = slotViews[slot].getTextMetricsParams();
+            }
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int slot = 0; slot < params.length; slot++) {
+                        if (params[slot] == null || texts[slot] == null) {
+                            continue;
+                        }
+                        String key = textKey(slot, params[slot], texts[slot]);
+                        if (precomputed.get(key) == null) {
+                            precomputed.put(key, PrecomputedText.create(texts[slot], params[slot]));
+                        }
+                    }
+                } catch (Exception e) {
+                    android.util.Log.e("FloatingBubble", "Failed to precompute popup text: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // Main thread, from bind: the precomputed text when its params still match the view
+    CharSequence textFor(int slot, TextView view, String text) {
+        if (text == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            return text;
+        }
+        PrecomputedText.Params params = view.getTextMetricsParams();
+        CharSequence prepared = precomputed.get(textKey(slot, params, text));
+        // setText throws on mismatched params, so a hash collision must not get through
+        if (prepared instanceof PrecomputedText && ((PrecomputedText) prepared).getParams().equals(params)) {
+            hits.incrementAndGet();
+            return prepared;
+        }
+        misses.incrementAndGet();
+        return text;
+    }
+
+    // Returns the estimated bytes released; evicted text is shaped again on a miss
+    long trim() {
+        long bytes = estimatedBytes();
+        layouts.evictAll();
+        precomputed.evictAll();
+        return bytes;
+    }
+
+    long estimatedBytes() {
+        long bytes = 0;
+        for (Map.Entry<String, StaticLayout> entry : layouts.snapshot().entrySet()) {
+            bytes += entry.getKey().length() * 2L + LAYOUT_BYTES
+                + (long) entry.getValue().getLineCount() * LAYOUT_LINE_BYTES;
+        }
+        for (Map.Entry<String, CharSequence> entry : precomputed.snapshot().entrySet()) {
+            bytes += entry.getKey().length() * 2L + (long) entry.getValue().length() * MEASURED_CHAR_BYTES;
+        }
+        return bytes;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        trim();
+    }
+}
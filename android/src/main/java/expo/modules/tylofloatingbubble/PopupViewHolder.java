@@ -0,0 +1,471 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
+
+// Popup view tree built once and rebound per offer. Opening the popup only
+// swaps strings that changed and re-attaches the root to the window manager.
+// In flat mode the card is a single PopupCardView instead of the tree.
+final class PopupViewHolder {
+    interface Listener {
+        void onAccept();
+        void onReject();
+        void onDismiss();
+    }
+
+    final RelativeLayout root;
+    final android.view.View content; // Card that animates in and out
+    final PopupCardView card; // Non-null in flat mode, where the TextViews below are null
+    final TextView titleView;
+    final TextView subtitleView;
+    final TextView priceView;
+    final TextView durationDistanceView;
+    final TextView pickupTitleView;
+    final TextView pickupAddressView;
+    final TextView destinationTitleView;
+    final TextView destinationAddressView;
+    final TextView paymentType;
+    final Button acceptButton;
+    final Button rejectButton;
+
+    // TextViews indexed by PopupCardView slot; null for slots with fixed text
+    private final TextView[] slotViews = new TextView[PopupCardView.SLOT_COUNT];
+    private final PopupTextCache textCache;
+    private int popupWidth;
+
+    PopupViewHolder(Context context, int popupWidth, boolean flat, PopupTextCache textCache, final Listener listener) {
+        this.textCache = textCache;
+        this.popupWidth = popupWidth;
+
+        // Create popup layout with semi-transparent background
+        root = new android.widget.RelativeLayout(context);
+        root.setBackgroundColor(android.graphics.Color.parseColor("#80000000")); // Semi-transparent background
+
+        // Add click listener to close popup when tapping outside
+        root.setOnClickListener(new android.view.View.OnClickListener() {
+            @Override
+            public void onClick(android.view.View v) {
+                listener.onDismiss();
+            }
+        });
+
+        if (flat) {
+            // Whole card is one View; no per-field views to keep
+            card = new PopupCardView(context, textCache, listener);
+            content = card;
+            titleView = null;
+            subtitleView = null;
+            priceView = null;
+            durationDistanceView = null;
+            pickupTitleView = null;
+            pickupAddressView = null;
+            destinationTitleView = null;
+            destinationAddressView = null;
+            paymentType = null;
+            acceptButton = null;
+            rejectButton = null;
+            android.widget.RelativeLayout.LayoutParams cardParams = new android.widget.RelativeLayout.LayoutParams(
+                popupWidth,
+                android.widget.RelativeLayout.LayoutParams.WRAP_CONTENT
+            );
+            cardParams.addRule(android.widget.RelativeLayout.CENTER_IN_PARENT);
+            root.addView(card, cardParams);
+            return;
+        }
+        card = null;
+
+        // Create main popup content container
+        android.widget.LinearLayout contentLayout = new android.widget.LinearLayout(context);
+        content = contentLayout;
+        contentLayout.setOrientation(android.widget.LinearLayout.VERTICAL);
+        contentLayout.setPadding(24, 24, 24, 24);
+        
+        // Create rounded background with shadow (matching React Native design)
+        android.graphics.drawable.GradientDrawable background = new android.graphics.drawable.GradientDrawable();
+        background.setColor(android.graphics.Color.WHITE);
+        background.setCornerRadius(24); // Rounded corners like React Native
+        
+        // Add shadow effect
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
+            contentLayout.setElevation(12);
+        }
+        
+        contentLayout.setBackground(background);
+        
+        // Set layout params for content - position in center
+        android.widget.RelativeLayout.LayoutParams contentParams = new android.widget.RelativeLayout.LayoutParams(
+            popupWidth,
+            android.widget.RelativeLayout.LayoutParams.WRAP_CONTENT
+        );
+        
+        // Position popup in center of screen
+        contentParams.addRule(android.widget.RelativeLayout.CENTER_IN_PARENT);
+
+        // HEADER SECTION (matching React Native design)
+        android.widget.LinearLayout headerLayout = new android.widget.LinearLayout(context);
+        headerLayout.setOrientation(android.widget.LinearLayout.VERTICAL);
+        headerLayout.setGravity(android.view.Gravity.CENTER);
+        android.widget.LinearLayout.LayoutParams headerParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        headerParams.setMargins(0, 0, 0, 20);
+
+        // Title
+        titleView = new android.widget.TextView(context);
+        titleView.setTextSize(20);
+        titleView.setTextColor(android.graphics.Color.parseColor("#1F2937"));
+        titleView.setTypeface(null, android.graphics.Typeface.BOLD);
+        titleView.setGravity(android.view.Gravity.CENTER);
+        android.widget.LinearLayout.LayoutParams titleParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        titleParams.setMargins(0, 0, 0, 8);
+        headerLayout.addView(titleView, titleParams);
+
+        // Subtitle
+        subtitleView = new android.widget.TextView(context);
+        subtitleView.setTextSize(14);
+        subtitleView.setTextColor(android.graphics.Color.parseColor("#6B7280"));
+        subtitleView.setGravity(android.view.Gravity.CENTER);
+        headerLayout.addView(subtitleView);
+
+        contentLayout.addView(headerLayout, headerParams);
+
+        // PRICE CARD SECTION (green background like React Native)
+        android.widget.LinearLayout priceCardLayout = new android.widget.LinearLayout(context);
+        priceCardLayout.setOrientation(android.widget.LinearLayout.VERTICAL);
+        priceCardLayout.setGravity(android.view.Gravity.CENTER);
+        priceCardLayout.setPadding(24, 24, 24, 24);
+        
+        // Create rounded background for price card
+        android.graphics.drawable.GradientDrawable priceCardBackground = new android.graphics.drawable.GradientDrawable();
+        priceCardBackground.setColor(android.graphics.Color.parseColor("#10B981"));
+        priceCardBackground.setCornerRadius(16);
+        priceCardLayout.setBackground(priceCardBackground);
+
+        android.widget.LinearLayout.LayoutParams priceCardParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        priceCardParams.setMargins(0, 0, 0, 20);
+
+        // Price text
+        priceView = new android.widget.TextView(context);
+        priceView.setTextSize(28);
+        priceView.setTextColor(android.graphics.Color.WHITE);
+        priceView.setTypeface(null, android.graphics.Typeface.BOLD);
+        priceView.setGravity(android.view.Gravity.CENTER);
+        android.widget.LinearLayout.LayoutParams priceParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        priceParams.setMargins(0, 0, 0, 8);
+        priceCardLayout.addView(priceView, priceParams);
+
+        // Time and distance
+        durationDistanceView = new android.widget.TextView(context);
+        durationDistanceView.setTextSize(14);
+        durationDistanceView.setTextColor(android.graphics.Color.WHITE);
+        durationDistanceView.setGravity(android.view.Gravity.CENTER);
+        priceCardLayout.addView(durationDistanceView);
+
+        contentLayout.addView(priceCardLayout, priceCardParams);
+
+        // LOCATION SECTION (matching React Native design with dots)
+        android.widget.LinearLayout locationContainer = new android.widget.LinearLayout(context);
+        locationContainer.setOrientation(android.widget.LinearLayout.VERTICAL);
+        android.widget.LinearLayout.LayoutParams locationContainerParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        locationContainerParams.setMargins(0, 0, 0, 20);
+
+        // Pickup location item
+        android.widget.LinearLayout pickupItem = new android.widget.LinearLayout(context);
+        pickupItem.setOrientation(android.widget.LinearLayout.HORIZONTAL);
+        pickupItem.setGravity(android.view.Gravity.CENTER_VERTICAL);
+        android.widget.LinearLayout.LayoutParams pickupItemParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        pickupItemParams.setMargins(0, 0, 0, 16);
+
+        // Pickup dot
+        android.view.View pickupDot = new android.view.View(context);
+        pickupDot.setBackgroundColor(android.graphics.Color.parseColor("#10B981"));
+        android.widget.LinearLayout.LayoutParams pickupDotParams = new android.widget.LinearLayout.LayoutParams(12, 12);
+        pickupDotParams.setMargins(0, 0, 12, 0);
+        pickupItem.addView(pickupDot, pickupDotParams);
+
+        // Pickup info
+        android.widget.LinearLayout pickupInfo = new android.widget.LinearLayout(context);
+        pickupInfo.setOrientation(android.widget.LinearLayout.VERTICAL);
+        pickupInfo.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
+            0, android.widget.LinearLayout.LayoutParams.WRAP_CONTENT, 1.0f
+        ));
+
+        pickupTitleView = new android.widget.TextView(context);
+        pickupTitleView.setTextSize(12);
+        pickupTitleView.setTextColor(android.graphics.Color.parseColor("#10B981"));
+        pickupTitleView.setTypeface(null, android.graphics.Typeface.BOLD);
+        android.widget.LinearLayout.LayoutParams pickupTitleParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        pickupTitleParams.setMargins(0, 0, 0, 4);
+        pickupInfo.addView(pickupTitleView, pickupTitleParams);
+
+        pickupAddressView = new android.widget.TextView(context);
+        pickupAddressView.setTextSize(14);
+        pickupAddressView.setTextColor(android.graphics.Color.parseColor("#1F2937"));
+        pickupInfo.addView(pickupAddressView);
+
+        pickupItem.addView(pickupInfo);
+        locationContainer.addView(pickupItem, pickupItemParams);
+
+        // Destination location item
+        android.widget.LinearLayout destinationItem = new android.widget.LinearLayout(context);
+        destinationItem.setOrientation(android.widget.LinearLayout.HORIZONTAL);
+        destinationItem.setGravity(android.view.Gravity.CENTER_VERTICAL);
+
+        // Destination dot
+        android.view.View destinationDot = new android.view.View(context);
+        destinationDot.setBackgroundColor(android.graphics.Color.parseColor("#EF4444"));
+        android.widget.LinearLayout.LayoutParams destinationDotParams = new android.widget.LinearLayout.LayoutParams(12, 12);
+        destinationDotParams.setMargins(0, 0, 12, 0);
+        destinationItem.addView(destinationDot, destinationDotParams);
+
+        // Destination info
+        android.widget.LinearLayout destinationInfo = new android.widget.LinearLayout(context);
+        destinationInfo.setOrientation(android.widget.LinearLayout.VERTICAL);
+        destinationInfo.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
+            0, android.widget.LinearLayout.LayoutParams.WRAP_CONTENT, 1.0f
+        ));
+
+        destinationTitleView = new android.widget.TextView(context);
+        destinationTitleView.setTextSize(12);
+        destinationTitleView.setTextColor(android.graphics.Color.parseColor("#EF4444"));
+        destinationTitleView.setTypeface(null, android.graphics.Typeface.BOLD);
+        android.widget.LinearLayout.LayoutParams destinationTitleParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        destinationTitleParams.setMargins(0, 0, 0, 4);
+        destinationInfo.addView(destinationTitleView, destinationTitleParams);
+
+        destinationAddressView = new android.widget.TextView(context);
+        destinationAddressView.setTextSize(14);
+        destinationAddressView.setTextColor(android.graphics.Color.parseColor("#1F2937"));
+        destinationInfo.addView(destinationAddressView);
+
+        destinationItem.addView(destinationInfo);
+        locationContainer.addView(destinationItem);
+
+        contentLayout.addView(locationContainer, locationContainerParams);
+
+        // PAYMENT SECTION
+        android.widget.LinearLayout paymentContainer = new android.widget.LinearLayout(context);
+        paymentContainer.setOrientation(android.widget.LinearLayout.HORIZONTAL);
+        paymentContainer.setGravity(android.view.Gravity.CENTER_VERTICAL);
+        android.widget.LinearLayout.LayoutParams paymentContainerParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        paymentContainerParams.setMargins(0, 0, 0, 24);
+
+        // Payment icon
+        android.widget.TextView paymentIcon = new android.widget.TextView(context);
+        paymentIcon.setText("💳");
+        paymentIcon.setTextSize(20);
+        android.widget.LinearLayout.LayoutParams paymentIconParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        paymentIconParams.setMargins(0, 0, 12, 0);
+        paymentContainer.addView(paymentIcon, paymentIconParams);
+
+        // Payment info
+        android.widget.LinearLayout paymentInfo = new android.widget.LinearLayout(context);
+        paymentInfo.setOrientation(android.widget.LinearLayout.VERTICAL);
+        paymentInfo.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
+            0, android.widget.LinearLayout.LayoutParams.WRAP_CONTENT, 1.0f
+        ));
+
+        android.widget.TextView paymentLabel = new android.widget.TextView(context);
+        paymentLabel.setText("Metode Pembayaran");
+        paymentLabel.setTextSize(12);
+        paymentLabel.setTextColor(android.graphics.Color.parseColor("#6B7280"));
+        paymentInfo.addView(paymentLabel);
+
+        paymentType = new android.widget.TextView(context);
+        paymentType.setTextSize(14);
+        paymentType.setTextColor(android.graphics.Color.parseColor("#1F2937"));
+        paymentType.setTypeface(null, android.graphics.Typeface.BOLD);
+        paymentInfo.addView(paymentType);
+
+        paymentContainer.addView(paymentInfo);
+        contentLayout.addView(paymentContainer, paymentContainerParams);
+
+        // BUTTON SECTION (matching React Native design)
+        android.widget.LinearLayout buttonContainer = new android.widget.LinearLayout(context);
+        buttonContainer.setOrientation(android.widget.LinearLayout.VERTICAL);
+
+        // Accept button (green background)
+        acceptButton = new android.widget.Button(context);
+        acceptButton.setTextColor(android.graphics.Color.WHITE);
+        acceptButton.setTextSize(16);
+        acceptButton.setTypeface(null, android.graphics.Typeface.BOLD);
+        
+        // Create rounded background for accept button
+        android.graphics.drawable.GradientDrawable acceptButtonBackground = new android.graphics.drawable.GradientDrawable();
+        acceptButtonBackground.setColor(android.graphics.Color.parseColor("#10B981"));
+        acceptButtonBackground.setCornerRadius(12);
+        acceptButton.setBackground(acceptButtonBackground);
+        
+        android.widget.LinearLayout.LayoutParams acceptButtonParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        acceptButtonParams.setMargins(0, 0, 0, 12);
+        acceptButton.setPadding(16, 16, 16, 16);
+        
+        acceptButton.setOnClickListener(new android.view.View.OnClickListener() {
+            @Override
+            public void onClick(android.view.View v) {
+                // Add button press animation
+                v.animate()
+                    .scaleX(0.95f)
+                    .scaleY(0.95f)
+                    .setDuration(100)
+                    .withEndAction(new Runnable() {
+                        @Override
+                        public void run() {
+                            v.animate()
+                                .scaleX(1f)
+                                .scaleY(1f)
+                                .setDuration(100)
+                                .start();
+                        }
+                    })
+                    .start();
+                
+                listener.onAccept();
+            }
+        });
+
+        // Reject button (gray background)
+        rejectButton = new android.widget.Button(context);
+        rejectButton.setTextColor(android.graphics.Color.parseColor("#6B7280"));
+        rejectButton.setTextSize(16);
+        rejectButton.setTypeface(null, android.graphics.Typeface.BOLD);
+        
+        // Create rounded background for reject button
+        android.graphics.drawable.GradientDrawable rejectButtonBackground = new android.graphics.drawable.GradientDrawable();
+        rejectButtonBackground.setColor(android.graphics.Color.parseColor("#F9FAFB"));
+        rejectButtonBackground.setCornerRadius(12);
+        rejectButton.setBackground(rejectButtonBackground);
+        
+        android.widget.LinearLayout.LayoutParams rejectButtonParams = new android.widget.LinearLayout.LayoutParams(
+            android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
+            android.widget.LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        rejectButton.setPadding(12, 12, 12, 12);
+        
+        rejectButton.setOnClickListener(new android.view.View.OnClickListener() {
+            @Override
+            public void onClick(android.view.View v) {
+                // Add button press animation
+                v.animate()
+                    .scaleX(0.95f)
+                    .scaleY(0.95f)
+                    .setDuration(100)
+                    .withEndAction(new Runnable() {
+                        @Override
+                        public void run() {
+                            v.animate()
+                                .scaleX(1f)
+                                .scaleY(1f)
+                                .setDuration(100)
+                                .start();
+                        }
+                    })
+                    .start();
+                
+                listener.onReject();
+            }
+        });
+
+        buttonContainer.addView(acceptButton, acceptButtonParams);
+        buttonContainer.addView(rejectButton, rejectButtonParams);
+        contentLayout.addView(buttonContainer);
+
+        slotViews[PopupCardView.SLOT_TITLE] = titleView;
+        slotViews[PopupCardView.SLOT_SUBTITLE] = subtitleView;
+        slotViews[PopupCardView.SLOT_PRICE] = priceView;
+        slotViews[PopupCardView.SLOT_DURATION_DISTANCE] = durationDistanceView;
+        slotViews[PopupCardView.SLOT_PICKUP_TITLE] = pickupTitleView;
+        slotViews[PopupCardView.SLOT_PICKUP_ADDRESS] = pickupAddressView;
+        slotViews[PopupCardView.SLOT_DESTINATION_TITLE] = destinationTitleView;
+        slotViews[PopupCardView.SLOT_DESTINATION_ADDRESS] = destinationAddressView;
+        slotViews[PopupCardView.SLOT_PAYMENT_TYPE] = paymentType;
+        slotViews[PopupCardView.SLOT_ACCEPT] = acceptButton;
+        slotViews[PopupCardView.SLOT_REJECT] = rejectButton;
+
+        // Add content to popup layout
+        root.addView(contentLayout, contentParams);
+
+    }
+
+    boolean isFlat() {
+        return card != null;
+    }
+
+    // Resizes the card in place after a configuration change; the card re-shapes its text on the next measure
+    void setPopupWidth(int width) {
+        if (width == popupWidth) {
+            return;
+        }
+        popupWidth = width;
+        android.view.ViewGroup.LayoutParams params = content.getLayoutParams();
+        params.width = width;
+        content.setLayoutParams(params);
+    }
+
+    // Shapes the offer's popup text in the background so a later bind only attaches it
+    void prepare(Offer offer) {
+        if (textCache == null) {
+            return;
+        }
+        if (card != null) {
+            textCache.prepareCard(offer, popupWidth);
+        } else {
+            textCache.prepareViews(offer, slotViews);
+        }
+    }
+
+    void bind(Offer offer) {
+        if (card != null) {
+            card.bind(offer);
+            return;
+        }
+        String[] texts = PopupCardView.slotTexts(offer);
+        for (int slot = 0; slot < slotViews.length; slot++) {
+            if (slotViews[slot] != null) {
+                setTextIfChanged(slot, slotViews[slot], texts[slot]);
+            }
+        }
+    }
+
+    // setText always requests a layout, so skip it when the string is unchanged
+    private void setTextIfChanged(int slot, TextView view, String text) {
+        if (!TextUtils.equals(view.getText(), text)) {
+            view.setText(textCache != null ? textCache.textFor(slot, view, text) : text);
+        }
+    }
+}
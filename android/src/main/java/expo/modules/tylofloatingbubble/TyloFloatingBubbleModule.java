@@ -1,11 +1,20 @@
 package expo.modules.tylofloatingbubble;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
 import android.provider.Settings;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import expo.modules.core.ExportedModule;
 import expo.modules.core.ModuleRegistry;
 import expo.modules.core.Promise;
@@ -14,15 +23,73 @@ import expo.modules.core.interfaces.ExpoMethod;
 import expo.modules.core.interfaces.services.EventEmitter;
 
 public class TyloFloatingBubbleModule extends ExportedModule {
-    private FloatingBubbleService floatingBubbleService;
-    private boolean isServiceRunning = false;
+    private volatile FloatingBubbleService.CommandBinder serviceBinder;
+    // Set by a startService the binding has not caught up with; updates go by intent until it does
+    private volatile boolean serviceStarting;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Bound without BIND_AUTO_CREATE: connects whenever the service runs, never keeps it alive
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            serviceBinder = (FloatingBubbleService.CommandBinder) service;
+            serviceStarting = false;
+            android.util.Log.d("FloatingBubble", "Module - service connected");
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            serviceBinder = null;
+            serviceStarting = false;
+            android.util.Log.d("FloatingBubble", "Module - service disconnected");
+        }
+    };
     private ModuleRegistry moduleRegistry;
     private EventEmitter eventEmitter;
-    private static TyloFloatingBubbleModule instance;
+
+    // String fields updateBubble may change on the live offer
+    private static final String[] UPDATABLE_STRING_FIELDS = {
+        "offerId", "title", "subtitle", "icon",
+        "popupTitle", "popupSubtitle", "popupPrice", "popupDuration", "popupDistance",
+        "popupPickupTitle", "popupPickupAddress", "popupDestinationTitle", "popupDestinationAddress",
+        "popupPaymentMethod", "popupAcceptText", "popupRejectText"
+    };
 
     public TyloFloatingBubbleModule(Context context) {
         super(context);
-        instance = this;
+        bindCommandChannel();
+    }
+
+    private void bindCommandChannel() {
+        try {
+            Intent intent = new Intent(getContext(), FloatingBubbleService.class);
+            getContext().getApplicationContext().bindService(intent, serviceConnection, 0);
+        } catch (Exception e) {
+            android.util.Log.e("FloatingBubble", "Failed to bind bubble service: " + e.getMessage());
+        }
+    }
+
+    // Binder calls touch views, so they run on the main thread and resolve from there
+    private void runOnMain(final Promise promise, final String errorMessage, final BinderCall call) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    FloatingBubbleService.CommandBinder binder = serviceBinder;
+                    if (binder != null && !binder.isAlive()) {
+                        binder = null;
+                    }
+                    promise.resolve(call.run(binder));
+                } catch (Exception e) {
+                    promise.reject("ERROR", errorMessage, e);
+                }
+            }
+        });
+    }
+
+    private interface BinderCall {
+        // binder is null when the service is not running
+        Object run(FloatingBubbleService.CommandBinder binder);
     }
 
     @Override
@@ -34,6 +101,37 @@ public class TyloFloatingBubbleModule extends ExportedModule {
     public void initialize(ModuleRegistry moduleRegistry) {
         this.moduleRegistry = moduleRegistry;
         this.eventEmitter = moduleRegistry.getModule(EventEmitter.class);
+        // Events published before the JS runtime attached are replayed now
+        BubbleEventBus.get().setEmitter(eventEmitter);
+        // State changes are not buffered while detached; catch this runtime up
+        if (eventEmitter != null) {
+            BubbleEventBus.get().publishState(BubbleState.current());
+        }
+    }
+
+    // Seeds the JS-side state cache, so its synchronous read is right before the first event
+    @Override
+    public Map<String, Object> getConstants() {
+        Map<String, Object> constants = new HashMap<>();
+        Bundle state = BubbleState.current().toBundle();
+        Map<String, Object> initialState = new HashMap<>();
+        for (String key : state.keySet()) {
+            initialState.put(key, state.get(key));
+        }
+        constants.put("initialState", initialState);
+        return constants;
+    }
+
+    @Override
+    public void onCreate(ModuleRegistry moduleRegistry) {
+        initialize(moduleRegistry);
+    }
+
+    @Override
+    public void onDestroy() {
+        // Buffer again until the next runtime attaches
+        BubbleEventBus.get().setEmitter(null);
+        eventEmitter = null;
     }
 
     @ExpoMethod
@@ -47,21 +145,11 @@ public class TyloFloatingBubbleModule extends ExportedModule {
         }
     }
 
-    // Static method to send event from service
+    // Static method to send event from service; buffered until the JS runtime is attached
     public static void sendBubbleClickEvent() {
         try {
             android.util.Log.d("FloatingBubble", "sendBubbleClickEvent called");
-            if (instance != null) {
-                android.util.Log.d("FloatingBubble", "Instance found");
-                if (instance.eventEmitter != null) {
-                    android.util.Log.d("FloatingBubble", "EventEmitter found, sending event");
-                    instance.eventEmitter.emit("onBubbleClick", null);
-                } else {
-                    android.util.Log.e("FloatingBubble", "EventEmitter is null");
-                }
-            } else {
-                android.util.Log.e("FloatingBubble", "Instance is null");
-            }
+            BubbleEventBus.get().publish(BubbleEventBus.BUBBLE_CLICK);
         } catch (Exception e) {
             android.util.Log.e("FloatingBubble", "Failed to send bubble click event: " + e.getMessage());
             e.printStackTrace();
@@ -109,52 +197,40 @@ public class TyloFloatingBubbleModule extends ExportedModule {
     @ExpoMethod
     public void showBubble(ReadableArguments data, Promise promise) {
         try {
+            BubbleMetrics.showRequests.incrementAndGet();
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && !Settings.canDrawOverlays(getContext())) {
+                BubbleMetrics.ignoredShowRequests.incrementAndGet();
                 promise.resolve(false); // No permission
                 return;
             }
 
-            Intent intent = new Intent(getContext(), FloatingBubbleService.class);
-            // Bubble params
-            intent.putExtra("title", data.getString("title", "New Order"));
-            intent.putExtra("subtitle", data.getString("subtitle", "Tap to view details"));
-            intent.putExtra("showBadge", data.getBoolean("showBadge", true));
-            intent.putExtra("badgeCount", data.getInt("badgeCount", 1));
-            intent.putExtra("icon", data.getString("icon", "tylo_circle"));
-            
-            // Debug: Check what data we actually receive
-            android.util.Log.d("FloatingBubble", "Module - Raw data: " + data.toString());
-            
-            // Popup params - get from data
-            String popupTitle = data.getString("popupTitle", "New Ride Request");
-            String popupPrice = data.getString("popupPrice", "$24.50");
-            String popupDuration = data.getString("popupDuration", "15 min");
-            String popupDistance = data.getString("popupDistance", "8.2 km");
-            String popupPickupAddress = data.getString("popupPickupAddress", "123 Main Street, Downtown Area");
-            String popupDestinationAddress = data.getString("popupDestinationAddress", "456 Business Center, Tech District");
-            
-            android.util.Log.d("FloatingBubble", "Module - Popup Title: " + popupTitle);
-            android.util.Log.d("FloatingBubble", "Module - Popup Price: " + popupPrice);
-            android.util.Log.d("FloatingBubble", "Module - Popup Duration: " + popupDuration);
-            android.util.Log.d("FloatingBubble", "Module - Popup Distance: " + popupDistance);
-            android.util.Log.d("FloatingBubble", "Module - Popup Pickup: " + popupPickupAddress);
-            android.util.Log.d("FloatingBubble", "Module - Popup Destination: " + popupDestinationAddress);
-            
-            intent.putExtra("popupTitle", popupTitle);
-            intent.putExtra("popupSubtitle", data.getString("popupSubtitle", "Tap to view details"));
-            intent.putExtra("popupPrice", popupPrice);
-            intent.putExtra("popupDuration", popupDuration);
-            intent.putExtra("popupDistance", popupDistance);
-            intent.putExtra("popupPickupTitle", data.getString("popupPickupTitle", "Pickup Location"));
-            intent.putExtra("popupPickupAddress", popupPickupAddress);
-            intent.putExtra("popupDestinationTitle", data.getString("popupDestinationTitle", "Destination"));
-            intent.putExtra("popupDestinationAddress", popupDestinationAddress);
-            intent.putExtra("popupPaymentMethod", data.getString("popupPaymentMethod", "Cash"));
-            intent.putExtra("popupAcceptText", data.getString("popupAcceptText", "Accept"));
-            intent.putExtra("popupRejectText", data.getString("popupRejectText", "Reject"));
-            
-            getContext().startService(intent);
-            isServiceRunning = true;
+            final Intent intent = new Intent(getContext(), FloatingBubbleService.class);
+            // Same process, so the service can measure show-to-first-frame from this timestamp
+            intent.putExtra("requestedAtNanos", System.nanoTime());
+            // Whole offer as one compact Parcelable; unknown fields such as orderData ride along untouched
+            final Offer offer = Offer.fromArguments(data);
+            intent.putExtra(Offer.EXTRA, offer);
+            android.util.Log.d("FloatingBubble", "Module - showBubble offer: " + offer.id);
+
+            FloatingBubbleService.CommandBinder liveBinder = serviceBinder;
+            if (liveBinder != null && liveBinder.isAlive()) {
+                // Running service: direct call, resolves with whether the offer was queued
+                final long requestedAtNanos = intent.getLongExtra("requestedAtNanos", 0L);
+                runOnMain(promise, "Failed to show bubble", new BinderCall() {
+                    @Override
+                    public Object run(FloatingBubbleService.CommandBinder binder) {
+                        if (binder == null) {
+                            startService(intent);
+                            return true;
+                        }
+                        return binder.show(offer, requestedAtNanos);
+                    }
+                });
+                return;
+            }
+
+            // Cold start goes through startService; the binding connects once it is up
+            startService(intent);
             
             promise.resolve(true);
         } catch (Exception e) {
@@ -162,25 +238,264 @@ public class TyloFloatingBubbleModule extends ExportedModule {
         }
     }
 
+    // Builds and attaches a hidden bubble so the first showBubble only binds and reveals it
     @ExpoMethod
-    public void hideBubble(Promise promise) {
+    public void prewarm(Promise promise) {
         try {
-            Intent intent = new Intent(getContext(), FloatingBubbleService.class);
-            getContext().stopService(intent);
-            isServiceRunning = false;
-            
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && !Settings.canDrawOverlays(getContext())) {
+                promise.resolve(false); // No permission
+                return;
+            }
+
+            FloatingBubbleService.CommandBinder liveBinder = serviceBinder;
+            if (liveBinder != null && liveBinder.isAlive()) {
+                runOnMain(promise, "Failed to prewarm bubble", new BinderCall() {
+                    @Override
+                    public Object run(FloatingBubbleService.CommandBinder binder) {
+                        if (binder == null) {
+                            startPrewarm();
+                            return true;
+                        }
+                        return binder.prewarm();
+                    }
+                });
+                return;
+            }
+
+            startPrewarm();
             promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to prewarm bubble", e);
+        }
+    }
+
+    private void startPrewarm() {
+        Intent intent = new Intent(getContext(), FloatingBubbleService.class);
+        intent.setAction(FloatingBubbleService.ACTION_PREWARM);
+        startService(intent);
+    }
+
+    private void startService(Intent intent) {
+        serviceStarting = true;
+        getContext().startService(intent);
+    }
+
+    @ExpoMethod
+    public void updateBubble(ReadableArguments data, Promise promise) {
+        try {
+            // Forward only the fields the caller passed; the service diffs them against the live offer
+            final Intent intent = new Intent(getContext(), FloatingBubbleService.class);
+            intent.setAction(FloatingBubbleService.ACTION_UPDATE);
+            for (String key : UPDATABLE_STRING_FIELDS) {
+                if (data.containsKey(key)) {
+                    intent.putExtra(key, data.getString(key));
+                }
+            }
+            if (data.containsKey("showBadge")) {
+                intent.putExtra("showBadge", data.getBoolean("showBadge"));
+            }
+            if (data.containsKey("badgeCount")) {
+                intent.putExtra("badgeCount", data.getInt("badgeCount"));
+            }
+            if (data.containsKey("priority")) {
+                intent.putExtra("priority", data.getInt("priority"));
+            }
+            if (data.containsKey("expiresAt")) {
+                // Epoch millis do not fit an int; null or 0 clears the deadline
+                Object expiresAt = data.get("expiresAt");
+                intent.putExtra("expiresAt", expiresAt instanceof Number ? ((Number) expiresAt).longValue() : 0L);
+            }
+
+            runOnMain(promise, "Failed to update bubble", new BinderCall() {
+                @Override
+                public Object run(FloatingBubbleService.CommandBinder binder) {
+                    if (binder == null && serviceStarting) {
+                        // Queued behind the show that is starting the service, so it applies once that has run
+                        getContext().startService(intent);
+                        return true;
+                    }
+                    // false when no bubble is running or no offer matched
+                    return binder != null && binder.update(intent);
+                }
+            });
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to update bubble", e);
+        }
+    }
+
+    @ExpoMethod
+    public void hideBubble(Promise promise) {
+        try {
+            runOnMain(promise, "Failed to hide bubble", new BinderCall() {
+                @Override
+                public Object run(FloatingBubbleService.CommandBinder binder) {
+                    if (binder != null) {
+                        binder.hide();
+                    } else {
+                        serviceStarting = false;
+                        getContext().stopService(new Intent(getContext(), FloatingBubbleService.class));
+                    }
+                    return true;
+                }
+            });
         } catch (Exception e) {
             promise.reject("ERROR", "Failed to hide bubble", e);
         }
     }
 
+    // Read from the service's published snapshot; no main-thread or binder round trip
     @ExpoMethod
     public void isBubbleVisible(Promise promise) {
         try {
-            promise.resolve(isServiceRunning);
+            promise.resolve(BubbleState.current().bubbleVisible);
         } catch (Exception e) {
             promise.reject("ERROR", "Failed to check visibility", e);
         }
     }
+
+    @ExpoMethod
+    public void getMetrics(Promise promise) {
+        try {
+            Bundle counters = new Bundle();
+            counters.putDouble("showRequests", BubbleMetrics.showRequests.get());
+            counters.putDouble("warmShows", BubbleMetrics.warmShows.get());
+            counters.putDouble("ignoredShowRequests", BubbleMetrics.ignoredShowRequests.get());
+            counters.putDouble("droppedShowRequests", BubbleMetrics.droppedShowRequests.get());
+            counters.putDouble("offersAccepted", BubbleMetrics.offersAccepted.get());
+            counters.putDouble("offersRejected", BubbleMetrics.offersRejected.get());
+            counters.putDouble("offersExpired", BubbleMetrics.offersExpired.get());
+            counters.putDouble("offersEvicted", BubbleMetrics.offersEvicted.get());
+            counters.putDouble("drags", BubbleMetrics.drags.get());
+            counters.putDouble("dragFrames", BubbleMetrics.dragFrames.get());
+            counters.putDouble("dragRelayouts", BubbleMetrics.dragRelayouts.get());
+            counters.putDouble("liveWindows", BubbleMetrics.liveWindows.get());
+            counters.putDouble("peakLiveWindows", BubbleMetrics.peakLiveWindows.get());
+            counters.putDouble("windowsAdded", BubbleMetrics.windowsAdded.get());
+            counters.putDouble("popupTextPrepared", PopupTextCache.hits.get());
+            counters.putDouble("popupTextShapedOnMain", PopupTextCache.misses.get());
+            counters.putDouble("eventsPublished", BubbleEventBus.published.get());
+            counters.putDouble("eventsDropped", BubbleEventBus.dropped.get());
+            counters.putDouble("eventsCoalesced", BubbleEventBus.coalesced.get());
+            counters.putDouble("eventBatches", BubbleEventBus.batches.get());
+            counters.putDouble("eventsPending", BubbleEventBus.get().pendingCount());
+
+            Bundle histograms = new Bundle();
+            for (BubbleMetrics.Histogram histogram : BubbleMetrics.HISTOGRAMS) {
+                Bundle values = new Bundle();
+                values.putDouble("count", histogram.count());
+                values.putDouble("sum", histogram.sum());
+                values.putDouble("max", histogram.max());
+                values.putDouble("p50", histogram.percentile(0.50));
+                values.putDouble("p90", histogram.percentile(0.90));
+                values.putDouble("p99", histogram.percentile(0.99));
+                histograms.putBundle(histogram.name, values);
+            }
+
+            Bundle memoryTrims = new Bundle();
+            for (int i = 0; i < BubbleMetrics.TRIM_LEVELS.length; i++) {
+                Bundle values = new Bundle();
+                values.putDouble("count", BubbleMetrics.trimCounts.get(i));
+                values.putDouble("bytesFreed", BubbleMetrics.trimBytesFreed.get(i));
+                values.putDouble("lastBytesFreed", BubbleMetrics.lastTrimBytesFreed.get(i));
+                memoryTrims.putBundle(BubbleMetrics.TRIM_LEVELS[i], values);
+            }
+
+            Bundle metrics = new Bundle();
+            metrics.putBundle("counters", counters);
+            metrics.putBundle("histograms", histograms);
+            metrics.putBundle("memoryTrims", memoryTrims);
+            promise.resolve(metrics);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to read metrics", e);
+        }
+    }
+
+    @ExpoMethod
+    public void setPopupRenderMode(String mode, Promise promise) {
+        try {
+            if (!"flat".equals(mode) && !"views".equals(mode)) {
+                promise.reject("INVALID_MODE", "Popup render mode must be 'flat' or 'views'");
+                return;
+            }
+            // Applied the next time the popup is opened
+            FloatingBubbleService.useFlatPopup = "flat".equals(mode);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to set popup render mode", e);
+        }
+    }
+
+    @ExpoMethod
+    public void setOverlayMode(String mode, Promise promise) {
+        try {
+            if (!"compositor".equals(mode) && !"windows".equals(mode)) {
+                promise.reject("INVALID_MODE", "Overlay mode must be 'compositor' or 'windows'");
+                return;
+            }
+            // Applied the next time the bubble is created
+            FloatingBubbleService.useCompositor = "compositor".equals(mode);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to set overlay mode", e);
+        }
+    }
+
+    @ExpoMethod
+    public void setBubbleMovedRate(int maxPerSecond, Promise promise) {
+        try {
+            if (maxPerSecond < 0 || maxPerSecond > MoveThrottle.MAX_RATE) {
+                promise.reject("INVALID_RATE", "bubbleMoved rate must be between 0 and " + MoveThrottle.MAX_RATE + " per second");
+                return;
+            }
+            // Read on every move, so it applies to a drag already in progress
+            FloatingBubbleService.bubbleMovedRate = maxPerSecond;
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to set bubbleMoved rate", e);
+        }
+    }
+
+    @ExpoMethod
+    public void setDoubleTapEnabled(boolean enabled, Promise promise) {
+        try {
+            // Read at the start of each touch, so a gesture in progress keeps its setting
+            FloatingBubbleService.detectDoubleTap = enabled;
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to set double tap detection", e);
+        }
+    }
+
+    @ExpoMethod
+    public void resetMetrics(Promise promise) {
+        try {
+            BubbleMetrics.reset();
+            BubbleEventBus.resetCounters();
+            PopupTextCache.hits.set(0);
+            PopupTextCache.misses.set(0);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to reset metrics", e);
+        }
+    }
+
+    @ExpoMethod
+    public void getBubbleState(Promise promise) {
+        try {
+            Bundle state = BubbleState.current().toBundle();
+            state.putInt("liveWindows", (int) BubbleMetrics.liveWindows.get());
+            promise.resolve(state);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to read bubble state", e);
+        }
+    }
+
+    @ExpoMethod
+    public void getQueueDepth(Promise promise) {
+        try {
+            promise.resolve(BubbleState.current().queueDepth);
+        } catch (Exception e) {
+            promise.reject("ERROR", "Failed to read queue depth", e);
+        }
+    }
 }
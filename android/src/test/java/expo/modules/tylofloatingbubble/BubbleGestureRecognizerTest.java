@@ -0,0 +1,220 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+// The gesture state machine fed through onTouch with main-looper time, so
+// the long-press and double-tap timeouts fire as the looper is idled past them
+@RunWith(RobolectricTestRunner.class)
+public class BubbleGestureRecognizerTest {
+    private static final int TOUCH_SLOP = 24;
+    private static final int DOUBLE_TAP_SLOP = 100;
+    private static final long LONG_PRESS_TIMEOUT = 400L;
+    private static final long DOUBLE_TAP_TIMEOUT = 300L;
+
+    private final ArrayList<String> events = new ArrayList<>();
+    private boolean allowsDrag = true;
+    private BubbleGestureRecognizer recognizer;
+
+    @Before
+    public void setUp() {
+        recognizer = new BubbleGestureRecognizer(TOUCH_SLOP, DOUBLE_TAP_SLOP, LONG_PRESS_TIMEOUT, DOUBLE_TAP_TIMEOUT,
+            new Handler(Looper.getMainLooper()), new BubbleGestureRecognizer.Listener() {
+                @Override
+                public void onDown() {
+                    events.add("down");
+                }
+
+                @Override
+                public boolean onDragStart() {
+                    events.add("dragStart");
+                    return allowsDrag;
+                }
+
+                @Override
+                public void onDrag(float deltaX, float deltaY) {
+                    events.add("drag " + (int) deltaX + "," + (int) deltaY);
+                }
+
+                @Override
+                public void onDragEnd() {
+                    events.add("dragEnd");
+                }
+
+                @Override
+                public void onTap() {
+                    events.add("tap");
+                }
+
+                @Override
+                public void onDoubleTap() {
+                    events.add("doubleTap");
+                }
+
+                @Override
+                public void onLongPress() {
+                    events.add("longPress");
+                }
+
+                @Override
+                public void onCancel(boolean wasDragging) {
+                    events.add("cancel " + wasDragging);
+                }
+            });
+    }
+
+    @Test
+    public void tap() {
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        idle(100L);
+        touch(MotionEvent.ACTION_MOVE, 110f, 105f); // Within the slop
+        touch(MotionEvent.ACTION_UP, 110f, 105f);
+        idle(LONG_PRESS_TIMEOUT);
+
+        assertEvents("down", "tap");
+        assertEquals(BubbleGestureRecognizer.STATE_IDLE, recognizer.getState());
+    }
+
+    @Test
+    public void moveBeyondSlopBecomesADrag() {
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        touch(MotionEvent.ACTION_MOVE, 120f, 100f);
+        assertEquals(BubbleGestureRecognizer.STATE_PRESSED, recognizer.getState());
+        touch(MotionEvent.ACTION_MOVE, 140f, 120f);
+        assertEquals(BubbleGestureRecognizer.STATE_DRAGGING, recognizer.getState());
+        touch(MotionEvent.ACTION_MOVE, 300f, 90f);
+        // Past the long-press timeout while dragging: still just a drag
+        idle(LONG_PRESS_TIMEOUT);
+        touch(MotionEvent.ACTION_UP, 300f, 90f);
+
+        // Deltas are from the down position, not from where the slop was crossed
+        assertEvents("down", "dragStart", "drag 40,20", "drag 200,-10", "dragEnd");
+        assertEquals(BubbleGestureRecognizer.STATE_IDLE, recognizer.getState());
+    }
+
+    @Test
+    public void refusedDragEndsAsATap() {
+        allowsDrag = false;
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        touch(MotionEvent.ACTION_MOVE, 200f, 100f);
+        assertEquals(BubbleGestureRecognizer.STATE_TAP_ONLY, recognizer.getState());
+        touch(MotionEvent.ACTION_MOVE, 300f, 100f);
+        touch(MotionEvent.ACTION_UP, 300f, 100f);
+
+        assertEvents("down", "dragStart", "tap");
+    }
+
+    @Test
+    public void longPress() {
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        idle(LONG_PRESS_TIMEOUT - 1L);
+        assertEvents("down");
+        idle(1L);
+        assertEvents("down", "longPress");
+        // The release reports nothing more
+        touch(MotionEvent.ACTION_UP, 100f, 100f);
+
+        assertEvents("down", "longPress");
+    }
+
+    @Test
+    public void moveAfterLongPressStillDrags() {
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        idle(LONG_PRESS_TIMEOUT);
+        touch(MotionEvent.ACTION_MOVE, 100f, 200f);
+        touch(MotionEvent.ACTION_UP, 100f, 200f);
+
+        assertEvents("down", "longPress", "dragStart", "drag 0,100", "dragEnd");
+    }
+
+    @Test
+    public void doubleTapInsideTheTimeout() {
+        recognizer.setDoubleTapEnabled(true);
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        touch(MotionEvent.ACTION_UP, 100f, 100f);
+        idle(DOUBLE_TAP_TIMEOUT - 50L);
+        touch(MotionEvent.ACTION_DOWN, 130f, 110f);
+        touch(MotionEvent.ACTION_UP, 130f, 110f);
+        idle(DOUBLE_TAP_TIMEOUT);
+
+        assertEvents("down", "down", "doubleTap");
+    }
+
+    @Test
+    public void tapsOutsideTheTimeoutAreTwoTaps() {
+        recognizer.setDoubleTapEnabled(true);
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        touch(MotionEvent.ACTION_UP, 100f, 100f);
+        // The first tap is held back for the whole timeout
+        idle(DOUBLE_TAP_TIMEOUT - 1L);
+        assertEvents("down");
+        idle(1L);
+        assertEvents("down", "tap");
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        touch(MotionEvent.ACTION_UP, 100f, 100f);
+        idle(DOUBLE_TAP_TIMEOUT);
+
+        assertEvents("down", "tap", "down", "tap");
+    }
+
+    @Test
+    public void secondTapOutsideTheSlopIsItsOwnTap() {
+        recognizer.setDoubleTapEnabled(true);
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        touch(MotionEvent.ACTION_UP, 100f, 100f);
+        idle(50L);
+        touch(MotionEvent.ACTION_DOWN, 400f, 100f);
+        touch(MotionEvent.ACTION_UP, 400f, 100f);
+        idle(DOUBLE_TAP_TIMEOUT);
+
+        assertEvents("down", "tap", "down", "tap");
+    }
+
+    @Test
+    public void cancelMidDragEndsWithoutADrop() {
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        touch(MotionEvent.ACTION_MOVE, 200f, 100f);
+        touch(MotionEvent.ACTION_CANCEL, 200f, 100f);
+        // A stray release after the cancel is not a tap
+        touch(MotionEvent.ACTION_UP, 200f, 100f);
+
+        assertEvents("down", "dragStart", "drag 100,0", "cancel true");
+        assertEquals(BubbleGestureRecognizer.STATE_IDLE, recognizer.getState());
+    }
+
+    @Test
+    public void cancelMidPressDropsTheLongPress() {
+        touch(MotionEvent.ACTION_DOWN, 100f, 100f);
+        idle(100L);
+        touch(MotionEvent.ACTION_CANCEL, 100f, 100f);
+        idle(LONG_PRESS_TIMEOUT);
+
+        assertEvents("down", "cancel false");
+    }
+
+    private void touch(int action, float x, float y) {
+        recognizer.onTouch(action, x, y, SystemClock.uptimeMillis());
+    }
+
+    private static void idle(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+    }
+}
@@ -0,0 +1,110 @@
+package expo.modules.tylofloatingbubble;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Plain JVM: the engine has no Android dependencies
+public class BubblePhysicsTest {
+    private static final float FRAME_60HZ = 1f / 60f;
+    private static final float FRAME_120HZ = 1f / 120f;
+
+    @Test
+    public void springConvergesToTarget() {
+        BubblePhysics physics = new BubblePhysics();
+        physics.springTo(0f, 0f, 0f, 0f, 500f, 300f);
+        int frames = 0;
+        while (physics.advance(FRAME_60HZ)) {
+            frames++;
+            assertTrue("Spring did not settle within 2 s", frames < 120);
+        }
+        assertFalse(physics.isRunning());
+        assertEquals(500f, physics.getX(), 0f);
+        assertEquals(300f, physics.getY(), 0f);
+        assertEquals(0f, physics.getVelocityX(), 0f);
+        assertEquals(0f, physics.getVelocityY(), 0f);
+    }
+
+    @Test
+    public void flingReleaseConvergesToTarget() {
+        BubblePhysics physics = new BubblePhysics();
+        // Released moving away from the target, as a fling toward the far edge turned back
+        physics.springTo(400f, 800f, -3000f, 1500f, 1000f, 600f);
+        int frames = 0;
+        while (physics.advance(FRAME_60HZ)) {
+            frames++;
+            assertTrue("Spring did not settle within 2 s", frames < 120);
+        }
+        assertEquals(1000f, physics.getX(), 0f);
+        assertEquals(600f, physics.getY(), 0f);
+    }
+
+    @Test
+    public void springFromRestDoesNotOvershoot() {
+        BubblePhysics physics = new BubblePhysics();
+        physics.springTo(0f, 0f, 0f, 0f, 500f, -300f);
+        float previousX = 0f;
+        float previousY = 0f;
+        while (physics.advance(FRAME_60HZ)) {
+            assertTrue("Overshot x: " + physics.getX(), physics.getX() <= 500f);
+            assertTrue("Overshot y: " + physics.getY(), physics.getY() >= -300f);
+            // Critically damped from rest: the approach is monotonic on both axes
+            assertTrue(physics.getX() >= previousX);
+            assertTrue(physics.getY() <= previousY);
+            previousX = physics.getX();
+            previousY = physics.getY();
+        }
+        assertEquals(500f, physics.getX(), 0f);
+        assertEquals(-300f, physics.getY(), 0f);
+    }
+
+    @Test
+    public void pathIsTheSameAt60And120Hz() {
+        BubblePhysics at60 = new BubblePhysics();
+        BubblePhysics at120 = new BubblePhysics();
+        at60.springTo(100f, 900f, 2500f, -800f, 1000f, 400f);
+        at120.springTo(100f, 900f, 2500f, -800f, 1000f, 400f);
+        boolean running = true;
+        for (int frame = 0; frame < 120 && running; frame++) {
+            running = at60.advance(FRAME_60HZ);
+            at120.advance(FRAME_120HZ);
+            boolean running120 = at120.advance(FRAME_120HZ);
+            // Both ran the same fixed steps; only float rounding in the accumulator may differ
+            assertEquals("x after frame " + frame, at60.getX(), at120.getX(), 0.01f);
+            assertEquals("y after frame " + frame, at60.getY(), at120.getY(), 0.01f);
+            assertEquals("settled after frame " + frame, running, running120);
+        }
+        assertFalse(running);
+    }
+
+    @Test
+    public void longFramesAreCappedAtMaxFrameTime() {
+        BubblePhysics capped = new BubblePhysics();
+        BubblePhysics reference = new BubblePhysics();
+        capped.springTo(0f, 0f, 0f, 0f, 500f, 0f);
+        reference.springTo(0f, 0f, 0f, 0f, 500f, 0f);
+        // A one-second hitch advances only as far as the cap allows, with no catch-up burst
+        capped.advance(1f);
+        reference.advance(BubblePhysics.MAX_FRAME_SECONDS);
+        assertEquals(reference.getX(), capped.getX(), 0f);
+        assertEquals(reference.getVelocityX(), capped.getVelocityX(), 0f);
+        assertTrue(capped.isRunning());
+        assertTrue(capped.getX() < 500f);
+    }
+
+    @Test
+    public void negativeFrameTimeDoesNotMove() {
+        BubblePhysics physics = new BubblePhysics();
+        physics.springTo(0f, 0f, 0f, 0f, 500f, 0f);
+        assertTrue(physics.advance(-1f));
+        assertEquals(0f, physics.getX(), 0f);
+    }
+
+    @Test
+    public void flingProjectionCoastsVelocityOverFriction() {
+        assertEquals(100f + 2000f / BubblePhysics.FLING_FRICTION, BubblePhysics.projectFling(100f, 2000f), 0f);
+        assertEquals(100f, BubblePhysics.projectFling(100f, 0f), 0f);
+    }
+}
@@ -0,0 +1,132 @@
+package expo.modules.tylofloatingbubble;
+
+import android.view.Display;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.view.WindowMetrics;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+
+// The service with its window manager wrapped, so tests see every window
+// call and can reach the overlay windows without hooks in the service
+public class CountingBubbleService extends FloatingBubbleService {
+    private Windows windows;
+
+    @Override
+    public Object getSystemService(String name) {
+        Object service = super.getSystemService(name);
+        if (!WINDOW_SERVICE.equals(name)) {
+            return service;
+        }
+        if (windows == null) {
+            windows = new Windows((WindowManager) service);
+        }
+        return windows;
+    }
+
+    Windows windows() {
+        return (Windows) getSystemService(WINDOW_SERVICE);
+    }
+
+    // Counts add, update and remove calls and tracks which roots are attached
+    static final class Windows implements WindowManager {
+        private final WindowManager real;
+        final ArrayList<View> roots = new ArrayList<>();
+        // The service moves its windows through these same objects
+        final ArrayList<WindowManager.LayoutParams> rootParams = new ArrayList<>();
+        int calls;
+
+        Windows(WindowManager real) {
+            this.real = real;
+        }
+
+        @Override
+        public void addView(View view, ViewGroup.LayoutParams params) {
+            calls++;
+            real.addView(view, params);
+            roots.add(view);
+            rootParams.add((WindowManager.LayoutParams) params);
+        }
+
+        @Override
+        public void updateViewLayout(View view, ViewGroup.LayoutParams params) {
+            calls++;
+            real.updateViewLayout(view, params);
+        }
+
+        @Override
+        public void removeView(View view) {
+            calls++;
+            forget(view);
+            real.removeView(view);
+        }
+
+        @Override
+        public void removeViewImmediate(View view) {
+            calls++;
+            forget(view);
+            real.removeViewImmediate(view);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public Display getDefaultDisplay() {
+            return real.getDefaultDisplay();
+        }
+
+        @Override
+        public WindowMetrics getCurrentWindowMetrics() {
+            return real.getCurrentWindowMetrics();
+        }
+
+        @Override
+        public WindowMetrics getMaximumWindowMetrics() {
+            return real.getMaximumWindowMetrics();
+        }
+
+        private void forget(View view) {
+            int index = roots.indexOf(view);
+            if (index >= 0) {
+                roots.remove(index);
+                rootParams.remove(index);
+            }
+        }
+
+        int attachedViews() {
+            int count = 0;
+            for (View root : roots) {
+                count += TestReports.countViews(root);
+            }
+            return count;
+        }
+
+        // A TextView (or Button) showing exactly this text in any attached window
+        TextView findText(String text) {
+            for (View root : roots) {
+                TextView view = findText(root, text);
+                if (view != null) {
+                    return view;
+                }
+            }
+            return null;
+        }
+
+        private static TextView findText(View view, String text) {
+            if (view instanceof TextView && text.contentEquals(((TextView) view).getText())) {
+                return (TextView) view;
+            }
+            if (view instanceof ViewGroup) {
+                ViewGroup group = (ViewGroup) view;
+                for (int i = 0; i < group.getChildCount(); i++) {
+                    TextView found = findText(group.getChildAt(i), text);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// The per-move work of a drag outside the framework calls: the gesture
+// recognizer's move, the drag clamp and the delete-zone hit test, as the
+// service runs them for every MOVE event. Fails on any heap allocation,
+// measured with the JVM's per-thread allocation counter. Robolectric only
+// provides the recognizer's Handler; nothing here posts to it mid-drag.
+@RunWith(RobolectricTestRunner.class)
+public class DragAllocationTest {
+    private static final int WARMUP_MOVES = 50000; // Enough to get the path compiled
+    private static final int MEASURED_MOVES = 10000;
+    private static final int POSITIONS = 1024; // Power of two for the index mask
+
+    private final BubbleGeometry geometry = new BubbleGeometry();
+    private final float[] xs = new float[POSITIONS];
+    private final float[] ys = new float[POSITIONS];
+    private final int[] target = new int[2];
+    private BubbleGestureRecognizer recognizer;
+
+    // What the service's listener does with a move, minus the frame it schedules
+    private int initialX;
+    private int initialY;
+    private int dragX;
+    private int dragY;
+    private int moves;
+    private int movesInDeleteArea;
+
+    @Before
+    public void setUp() {
+        geometry.update(1080, 2400, 2.75f, 0, 66, 0, 44);
+        // Sweeps the screen and past its edges, crossing the delete zone
+        for (int i = 0; i < POSITIONS; i++) {
+            xs[i] = -200f + 1480f * i / POSITIONS;
+            ys[i] = 2600f - 2800f * ((i * 7) & (POSITIONS - 1)) / POSITIONS;
+        }
+        recognizer = new BubbleGestureRecognizer(24, 300, 400L, 300L, new Handler(Looper.getMainLooper()),
+            new BubbleGestureRecognizer.Listener() {
+                @Override
+                public void onDown() {
+                    initialX = geometry.clampX(500);
+                    initialY = geometry.clampY(1200);
+                }
+
+                @Override
+                public boolean onDragStart() {
+                    return true;
+                }
+
+                @Override
+                public void onDrag(float deltaX, float deltaY) {
+                    dragX = geometry.clampX(initialX + (int) deltaX);
+                    dragY = geometry.clampY(initialY + (int) deltaY);
+                    moves++;
+                    if (geometry.isInDeleteArea(dragX, dragY)) {
+                        movesInDeleteArea++;
+                    }
+                }
+
+                @Override
+                public void onDragEnd() {
+                }
+
+                @Override
+                public void onTap() {
+                }
+
+                @Override
+                public void onDoubleTap() {
+                }
+
+                @Override
+                public void onLongPress() {
+                }
+
+                @Override
+                public void onCancel(boolean wasDragging) {
+                }
+            });
+    }
+
+    @Test
+    public void dragMovesDoNotAllocate() {
+        long time = SystemClock.uptimeMillis();
+        recognizer.onTouch(MotionEvent.ACTION_DOWN, 530f, 1230f, time);
+        move(WARMUP_MOVES, time);
+        assertEquals(BubbleGestureRecognizer.STATE_DRAGGING, recognizer.getState());
+
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                move(MEASURED_MOVES, 0L);
+            }
+        });
+        recognizer.onTouch(MotionEvent.ACTION_UP, dragX, dragY, time);
+
+        assertTrue("The sweep never reached the delete zone", movesInDeleteArea > 0);
+        assertEquals("Bytes allocated over " + MEASURED_MOVES + " drag moves", 0L, allocated);
+    }
+
+    @Test
+    public void snapSelectionDoesNotAllocate() {
+        for (int i = 0; i < WARMUP_MOVES; i++) {
+            snap(i);
+        }
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_MOVES; i++) {
+                    snap(i);
+                }
+            }
+        });
+        assertEquals("Bytes allocated over " + MEASURED_MOVES + " snap selections", 0L, allocated);
+    }
+
+    private void move(int count, long time) {
+        for (int i = 0; i < count; i++) {
+            int index = i & (POSITIONS - 1);
+            recognizer.onTouch(MotionEvent.ACTION_MOVE, xs[index], ys[index], time);
+        }
+    }
+
+    private void snap(int i) {
+        int index = i & (POSITIONS - 1);
+        geometry.snapTarget((int) xs[index], (int) ys[index], target);
+    }
+
+    // Bytes the current thread allocated while running the block, less what reading the counter costs
+    private static long measure(Runnable block) {
+        long overhead = allocatedBytes();
+        overhead = allocatedBytes() - overhead;
+        long before = allocatedBytes();
+        block.run();
+        return Math.max(0L, allocatedBytes() - before - overhead);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,133 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Intent;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ServiceController;
+
+import java.time.Duration;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+// Offer handling in the real service while the popup is open, observed
+// through the overlay windows it attaches
+@RunWith(RobolectricTestRunner.class)
+public class FloatingBubbleServiceTest {
+    private static final long SETTLE_MS = 800; // Outlasts the click and popup animations
+
+    private ServiceController<CountingBubbleService> controller;
+    private CountingBubbleService service;
+    private CountingBubbleService.Windows windows;
+
+    @Before
+    public void setUp() {
+        BubbleMetrics.reset();
+        FloatingBubbleService.useFlatPopup = false;
+        FloatingBubbleService.useCompositor = false;
+        FloatingBubbleService.detectDoubleTap = false;
+        controller = Robolectric.buildService(CountingBubbleService.class);
+        service = controller.create().get();
+        windows = service.windows();
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+        BubbleMetrics.reset();
+    }
+
+    @Test
+    public void offerResentWhilePopupIsOpenReplacesWhatThePopupShows() {
+        show(offer("order-1", "Rp 10.000"));
+        openPopup();
+        assertNotNull("Popup did not open", windows.findText("Rp 10.000"));
+
+        show(offer("order-1", "Rp 12.500"));
+        idle(SETTLE_MS);
+        assertNotNull("Popup kept the stale payload", windows.findText("Rp 12.500"));
+
+        // An update without an id goes to the offer on screen, which is now the re-sent one
+        Intent update = new Intent();
+        update.putExtra("popupPrice", "Rp 15.000");
+        command().update(update);
+        idle(SETTLE_MS);
+        assertNotNull("Update did not reach the open popup", windows.findText("Rp 15.000"));
+
+        windows.findText("Accept").performClick();
+        idle(SETTLE_MS);
+        assertEquals(1L, BubbleMetrics.offersAccepted.get());
+        assertEquals(0, BubbleState.current().queueDepth);
+        assertNull("Popup stayed open with no offer left", windows.findText("Accept"));
+    }
+
+    @Test
+    public void offerEvictedFromAFullQueueIsReported() {
+        for (int i = 0; i < 16; i++) {
+            show(offer("order-" + i, "Rp " + i));
+        }
+        Offer urgent = offer("urgent", "Rp 99");
+        urgent.priority = 1;
+        show(urgent);
+
+        // The newest of the equal-priority offers made room
+        assertEquals(1L, BubbleMetrics.offersEvicted.get());
+        assertEquals(16, BubbleState.current().queueDepth);
+        assertEquals("urgent", BubbleState.current().currentOfferId);
+    }
+
+    private void show(Offer offer) {
+        Intent intent = new Intent(service, FloatingBubbleService.class);
+        intent.putExtra(Offer.EXTRA, offer);
+        service.onStartCommand(intent, 0, 1);
+        idle(SETTLE_MS);
+    }
+
+    // A tap on the bubble, which is the first window the service adds
+    private void openPopup() {
+        View bubble = windows.roots.get(0);
+        WindowManager.LayoutParams params = windows.rootParams.get(0);
+        // Only the movement between down and up matters to the gesture, not where it lands
+        float x = params.x + bubble.getWidth() / 2f;
+        float y = params.y + bubble.getHeight() / 2f;
+        long downTime = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        bubble.dispatchTouchEvent(down);
+        down.recycle();
+        idle(50L);
+        MotionEvent up = MotionEvent.obtain(downTime, downTime + 50L, MotionEvent.ACTION_UP, x, y, 0);
+        bubble.dispatchTouchEvent(up);
+        up.recycle();
+        idle(SETTLE_MS);
+    }
+
+    private FloatingBubbleService.CommandBinder command() {
+        return (FloatingBubbleService.CommandBinder) service.onBind(new Intent());
+    }
+
+    private static void idle(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    private static Offer offer(String id, String price) {
+        HashMap<String, Object> values = new HashMap<>();
+        values.put("offerId", id);
+        values.put("popupPrice", price);
+        Offer offer = new Offer();
+        offer.applyPayload(values);
+        return offer;
+    }
+}
@@ -0,0 +1,141 @@
+package expo.modules.tylofloatingbubble;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// The journal's stored offer layout: what goes in comes back out, with the
+// caller's extras typed as they were sent. Robolectric provides Bundle.
+@RunWith(RobolectricTestRunner.class)
+public class OfferEncodingTest {
+    @Test
+    public void fieldsRoundTrip() throws IOException {
+        Offer offer = offer();
+        offer.receivedAt = 1700000000000L;
+
+        Offer read = decode(encode(offer));
+
+        assertEquals("offer-1", read.id);
+        assertEquals(3, read.priority);
+        assertFalse(read.showBadge);
+        assertEquals(4, read.badgeCount);
+        assertEquals(1700000030000L, read.expiresAt);
+        assertEquals(1700000000000L, read.receivedAt);
+        assertEquals("Order #1", read.title);
+        assertEquals("Rp 128.500", read.popupPrice);
+        assertEquals("Jl. Jend. Sudirman Kav. 52-53, Jakarta — 🚕", read.popupPickupAddress);
+        assertNull(read.extras);
+    }
+
+    @Test
+    public void defaultsAreSharedAndNotStored() throws IOException {
+        Offer plain = new Offer();
+        plain.id = "offer-2";
+        Offer read = decode(encode(plain));
+
+        // Unset strings come back as the shared default references
+        assertSame(OfferFields.DEFAULT_TITLE, read.title);
+        assertSame(OfferFields.DEFAULT_POPUP_DESTINATION_ADDRESS, read.popupDestinationAddress);
+        assertTrue(encode(plain).length < encode(offer()).length);
+    }
+
+    @Test
+    public void extrasRoundTripWithTheirTypes() throws IOException {
+        Bundle orderData = new Bundle();
+        orderData.putString("orderId", "A-17");
+        orderData.putDouble("fare", 128500.0);
+        orderData.putBoolean("cash", true);
+        Bundle customer = new Bundle();
+        customer.putString("name", "Budi");
+        orderData.putBundle("customer", customer);
+        orderData.putSerializable("stops", new ArrayList<Object>(Arrays.asList("Senayan", 2.5, null)));
+        Bundle extras = new Bundle();
+        extras.putBundle("orderData", orderData);
+        extras.putInt("count", 7);
+        extras.putLong("since", 1700000000000L);
+
+        Offer offer = offer();
+        offer.extras = extras;
+        Bundle read = decode(encode(offer)).extras;
+
+        Bundle readOrder = read.getBundle("orderData");
+        assertEquals("A-17", readOrder.getString("orderId"));
+        assertEquals(128500.0, readOrder.getDouble("fare"), 0.0);
+        assertTrue(readOrder.getBoolean("cash"));
+        assertEquals("Budi", readOrder.getBundle("customer").getString("name"));
+        List<?> stops = (List<?>) readOrder.getSerializable("stops");
+        assertEquals(Arrays.asList("Senayan", 2.5, null), stops);
+        assertEquals(7, read.getInt("count"));
+        assertEquals(1700000000000L, read.getLong("since"));
+    }
+
+    @Test
+    public void unsupportedExtrasAreLeftOut() throws IOException {
+        Bundle extras = new Bundle();
+        extras.putString("kept", "yes");
+        extras.putIntArray("dropped", new int[] {1, 2});
+        Offer offer = offer();
+        offer.extras = extras;
+
+        Bundle read = decode(encode(offer)).extras;
+
+        assertEquals("yes", read.getString("kept"));
+        assertFalse(read.containsKey("dropped"));
+    }
+
+    @Test
+    public void truncatedRecordFailsInsteadOfReadingGarbage() throws IOException {
+        byte[] bytes = encode(offer());
+        try {
+            decode(Arrays.copyOf(bytes, bytes.length - 5));
+            fail("Read a truncated offer");
+        } catch (EOFException expected) {
+            // The journal stops at such a record
+        }
+    }
+
+    private static Offer offer() {
+        HashMap<String, Object> values = new HashMap<>();
+        values.put("offerId", "offer-1");
+        values.put("priority", 3.0);
+        values.put("showBadge", false);
+        values.put("badgeCount", 4.0);
+        values.put("expiresAt", 1700000030000.0);
+        values.put("title", "Order #1");
+        values.put("popupPrice", "Rp 128.500");
+        values.put("popupPickupAddress", "Jl. Jend. Sudirman Kav. 52-53, Jakarta — 🚕");
+        Offer offer = new Offer();
+        offer.applyPayload(values);
+        return offer;
+    }
+
+    private static byte[] encode(Offer offer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        offer.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static Offer decode(byte[] bytes) throws IOException {
+        return Offer.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,69 @@
+package expo.modules.tylofloatingbubble;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+// Ordering and what a full queue leaves out. Robolectric provides the
+// Android classes Offer is built on.
+@RunWith(RobolectricTestRunner.class)
+public class OfferQueueTest {
+    @Test
+    public void bestPriorityThenEarliestArrivalComesFirst() {
+        OfferQueue queue = new OfferQueue(4);
+        queue.offer(offer("a", 0));
+        queue.offer(offer("b", 2));
+        queue.offer(offer("c", 2));
+
+        assertEquals("b", queue.poll().id);
+        assertEquals("c", queue.poll().id);
+        assertEquals("a", queue.poll().id);
+    }
+
+    @Test
+    public void fullQueueEvictsItsLowestRankedOffer() {
+        OfferQueue queue = new OfferQueue(2);
+        Offer first = offer("a", 0);
+        Offer second = offer("b", 0);
+        assertNull(queue.offer(first));
+        assertNull(queue.offer(second));
+
+        // Same priority: the later arrival ranks lower and makes room
+        assertSame(second, queue.offer(offer("c", 1)));
+        assertEquals(2, queue.size());
+        assertNull(queue.get("b"));
+    }
+
+    @Test
+    public void fullQueueLeavesOutAnOfferRankedBelowEveryPendingOne() {
+        OfferQueue queue = new OfferQueue(1);
+        queue.offer(offer("a", 1));
+        Offer low = offer("b", 1);
+
+        assertSame(low, queue.offer(low));
+        assertEquals("a", queue.peek().id);
+    }
+
+    @Test
+    public void resentIdReplacesInPlaceWithoutEvicting() {
+        OfferQueue queue = new OfferQueue(2);
+        queue.offer(offer("a", 0));
+        queue.offer(offer("b", 0));
+        Offer resent = offer("b", 3);
+
+        assertNull(queue.offer(resent));
+        assertEquals(2, queue.size());
+        assertSame(resent, queue.peek());
+    }
+
+    private static Offer offer(String id, int priority) {
+        Offer offer = new Offer();
+        offer.id = id;
+        offer.priority = priority;
+        return offer;
+    }
+}
@@ -0,0 +1,89 @@
+package expo.modules.tylofloatingbubble;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// The flat card as an accessibility service sees it: Accept and Reject as
+// virtual buttons that click through to the same listener as a touch
+@RunWith(RobolectricTestRunner.class)
+public class PopupCardViewTest {
+    private final ArrayList<String> events = new ArrayList<>();
+    private PopupCardView card;
+
+    @Before
+    public void setUp() {
+        card = new PopupCardView(RuntimeEnvironment.getApplication(), null, new PopupViewHolder.Listener() {
+            @Override
+            public void onAccept() {
+                events.add("accept");
+            }
+
+            @Override
+            public void onReject() {
+                events.add("reject");
+            }
+
+            @Override
+            public void onDismiss() {
+                events.add("dismiss");
+            }
+        });
+        Offer offer = new Offer();
+        offer.popupPrice = "Rp 128.500";
+        offer.popupAcceptText = "Terima";
+        offer.popupRejectText = "Tolak";
+        card.bind(offer);
+        card.measure(View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        card.layout(0, 0, card.getMeasuredWidth(), card.getMeasuredHeight());
+    }
+
+    @Test
+    public void buttonsAreVirtualViewsWithTheirText() {
+        AccessibilityNodeProvider provider = card.getAccessibilityNodeProvider();
+        assertNotNull("No accessibility provider on the flat card", provider);
+
+        AccessibilityNodeInfo accept = provider.createAccessibilityNodeInfo(PopupCardView.VIRTUAL_ACCEPT);
+        AccessibilityNodeInfo reject = provider.createAccessibilityNodeInfo(PopupCardView.VIRTUAL_REJECT);
+        assertEquals("Terima", accept.getText().toString());
+        assertEquals("Tolak", reject.getText().toString());
+        assertTrue(accept.isClickable());
+
+        // Accept sits above Reject, each inside the card
+        Rect acceptBounds = new Rect();
+        Rect rejectBounds = new Rect();
+        accept.getBoundsInParent(acceptBounds);
+        reject.getBoundsInParent(rejectBounds);
+        assertTrue(acceptBounds.bottom <= rejectBounds.top);
+        assertTrue(rejectBounds.bottom <= card.getHeight());
+    }
+
+    @Test
+    public void cardDescriptionReadsTheOffer() {
+        assertTrue(card.getContentDescription().toString().contains("Rp 128.500"));
+    }
+
+    @Test
+    public void accessibilityClicksReachTheListener() {
+        AccessibilityNodeProvider provider = card.getAccessibilityNodeProvider();
+        assertTrue(provider.performAction(PopupCardView.VIRTUAL_REJECT, AccessibilityNodeInfo.ACTION_CLICK, null));
+        assertTrue(provider.performAction(PopupCardView.VIRTUAL_ACCEPT, AccessibilityNodeInfo.ACTION_CLICK, null));
+
+        assertEquals(Arrays.asList("reject", "accept"), events);
+    }
+}
@@ -0,0 +1,110 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+// Measure + layout cost of the two popup render modes. Builds each popup off
+// window, alternates between two offers so every pass re-lays out changed
+// text, and forces a full pass over the tree like a fresh attach does. The
+// summary is printed and written to build/reports/popup-layout.json for
+// diffing across versions; times under Robolectric compare the modes, not
+// a device.
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w411dp-h891dp-xxhdpi")
+public class PopupLayoutBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    public void compareRenderModes() throws JSONException, IOException {
+        Context context = RuntimeEnvironment.getApplication();
+        android.util.DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
+        int popupWidth = (int) (displayMetrics.widthPixels * 0.9);
+
+        JSONObject viewTree = measureMode(context, false, popupWidth, displayMetrics.widthPixels, displayMetrics.heightPixels);
+        JSONObject flat = measureMode(context, true, popupWidth, displayMetrics.widthPixels, displayMetrics.heightPixels);
+        JSONObject report = new JSONObject();
+        report.put("iterations", ITERATIONS);
+        report.put("viewTree", viewTree);
+        report.put("flat", flat);
+        TestReports.write("popup-layout.json", report);
+
+        assertTrue("The flat card should be a single View under the root", flat.getInt("viewCount") < viewTree.getInt("viewCount"));
+    }
+
+    private static JSONObject measureMode(Context context, boolean flat, int popupWidth, int screenWidth, int screenHeight)
+        throws JSONException {
+        PopupViewHolder holder = new PopupViewHolder(context, popupWidth, flat, null, new PopupViewHolder.Listener() {
+            @Override
+            public void onAccept() {
+            }
+
+            @Override
+            public void onReject() {
+            }
+
+            @Override
+            public void onDismiss() {
+            }
+        });
+        Offer first = new Offer();
+        Offer second = new Offer();
+        second.popupPrice = "Rp 128.500";
+        second.popupPickupAddress = "Jl. Jend. Sudirman Kav. 52-53, Senayan, Kebayoran Baru, Jakarta Selatan";
+        second.popupDestinationAddress = "Terminal 3 Keberangkatan, Bandara Internasional Soekarno-Hatta, Tangerang";
+
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(screenWidth, View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(screenHeight, View.MeasureSpec.EXACTLY);
+
+        long[] samples = new long[ITERATIONS];
+        for (int i = -WARMUP_ITERATIONS; i < samples.length; i++) {
+            holder.bind((i & 1) == 0 ? first : second);
+            forceLayoutTree(holder.root);
+            long start = System.nanoTime();
+            holder.root.measure(widthSpec, heightSpec);
+            holder.root.layout(0, 0, holder.root.getMeasuredWidth(), holder.root.getMeasuredHeight());
+            long elapsed = System.nanoTime() - start;
+            if (i >= 0) {
+                samples[i] = elapsed;
+            }
+        }
+
+        Arrays.sort(samples);
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        JSONObject stats = new JSONObject();
+        stats.put("meanMicros", total / 1000.0 / samples.length);
+        stats.put("p50Micros", samples[samples.length / 2] / 1000.0);
+        stats.put("p90Micros", samples[(int) Math.min(samples.length - 1, Math.ceil(samples.length * 0.9) - 1)] / 1000.0);
+        stats.put("maxMicros", samples[samples.length - 1] / 1000.0);
+        stats.put("viewCount", TestReports.countViews(holder.root));
+        return stats;
+    }
+
+    // measure() skips views whose spec is unchanged unless they are flagged
+    private static void forceLayoutTree(View view) {
+        view.forceLayout();
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                forceLayoutTree(group.getChildAt(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package expo.modules.tylofloatingbubble;
+
+import android.content.Intent;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.TextView;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ServiceController;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+// End-to-end scenarios against the real service: show through onStartCommand,
+// a 500-event drag, tap to popup, accept, and a drop on the delete zone. Touch
+// input is dispatched to the bubble window at 240Hz and the main looper is
+// idled between events, so animations and frame callbacks run as on a device.
+//
+// Per scenario: main-thread dispatch time, WindowManager calls, views attached
+// across the overlay windows, and bytes the test thread allocated. Robolectric's
+// own work is in those bytes, so compare runs with each other, not with a device.
+// The summary is printed and written to build/reports/service-scenarios.json.
+@RunWith(RobolectricTestRunner.class)
+public class ServiceScenariosTest {
+    private static final int DRAG_EVENTS = 500;
+    private static final int DELETE_DRAG_EVENTS = 60;
+    private static final long EVENT_INTERVAL_MS = 4; // 240Hz touch sampling
+    private static final long SETTLE_MS = 800; // Outlasts the click, popup and delete animations
+
+    private ServiceController<CountingBubbleService> controller;
+    private CountingBubbleService service;
+    private CountingBubbleService.Windows windows;
+    private final BubbleGeometry geometry = new BubbleGeometry();
+    private final JSONArray results = new JSONArray();
+
+    // Current scenario
+    private String scenario;
+    private long dispatchNanos;
+    private int callsAtStart;
+    private long bytesAtStart;
+
+    @Before
+    public void setUp() {
+        BubbleMetrics.reset();
+        BubbleEventBus.resetCounters();
+        FloatingBubbleService.useFlatPopup = false;
+        FloatingBubbleService.useCompositor = false;
+        FloatingBubbleService.detectDoubleTap = false;
+        controller = Robolectric.buildService(CountingBubbleService.class);
+        service = controller.create().get();
+        windows = service.windows();
+
+        // The same geometry the service computed in onCreate
+        DisplaySafeArea safeArea = new DisplaySafeArea();
+        safeArea.read(service, windows);
+        geometry.update(safeArea.width, safeArea.height, service.getResources().getDisplayMetrics().density,
+            safeArea.left, safeArea.top, safeArea.right, safeArea.bottom);
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+        BubbleMetrics.reset();
+        BubbleEventBus.resetCounters();
+    }
+
+    @Test
+    public void showDragTapAcceptAndDelete() throws IOException, JSONException {
+        begin("show");
+        Intent intent = new Intent(service, FloatingBubbleService.class);
+        intent.putExtra("requestedAtNanos", System.nanoTime());
+        intent.putExtra(Offer.EXTRA, scenarioOffer());
+        long start = System.nanoTime();
+        service.onStartCommand(intent, 0, 1);
+        dispatchNanos += System.nanoTime() - start;
+        idle(SETTLE_MS);
+        end();
+        assertFalse("Bubble window was not added", windows.roots.isEmpty());
+        // The bubble is the first window, and the service moves it through these same params
+        View bubble = windows.roots.get(0);
+        WindowManager.LayoutParams params = windows.rootParams.get(0);
+
+        // Sweeps up and left across the screen, clear of the delete zone, then releases into a snap
+        begin("drag");
+        int startX = params.x;
+        int startY = params.y;
+        gesture(bubble, params.x + geometry.bubbleRadius, params.y + geometry.bubbleRadius,
+            geometry.screenWidth * 0.3f, geometry.screenHeight * 0.3f, DRAG_EVENTS);
+        end();
+        assertTrue("Bubble did not move", params.x != startX || params.y != startY);
+
+        begin("tapToPopup");
+        float x = params.x + geometry.bubbleRadius;
+        float y = params.y + geometry.bubbleRadius;
+        gesture(bubble, x, y, x, y, 2);
+        end();
+        TextView accept = windows.findText("Accept");
+        assertNotNull("Popup did not open after a tap", accept);
+
+        begin("accept");
+        start = System.nanoTime();
+        accept.performClick();
+        dispatchNanos += System.nanoTime() - start;
+        idle(SETTLE_MS);
+        end();
+        assertEquals(1L, BubbleMetrics.offersAccepted.get());
+        assertNull("Popup stayed open with no offer left", windows.findText("Accept"));
+
+        // Drags the bubble center onto the delete zone; the service stops itself after the drop
+        begin("deleteDrop");
+        gesture(bubble, params.x + geometry.bubbleRadius, params.y + geometry.bubbleRadius,
+            geometry.deleteAreaCenterX, geometry.deleteAreaCenterY, DELETE_DRAG_EVENTS);
+        end();
+        assertFalse("Bubble was not deleted", windows.roots.contains(bubble));
+        assertTrue(shadowOf(service).isStoppedBySelf());
+
+        JSONObject report = new JSONObject();
+        report.put("popupRenderMode", "views");
+        report.put("dragEvents", DRAG_EVENTS);
+        report.put("scenarios", results);
+        TestReports.write("service-scenarios.json", report);
+    }
+
+    // DOWN, evenly spaced MOVEs, UP, dispatched to the bubble window at touch sampling rate
+    private void gesture(View bubble, float fromX, float fromY, float toX, float toY, int events) {
+        long downTime = SystemClock.uptimeMillis();
+        int last = Math.max(2, events) - 1;
+        for (int index = 0; index <= last; index++) {
+            int action = index == 0 ? MotionEvent.ACTION_DOWN : index == last ? MotionEvent.ACTION_UP : MotionEvent.ACTION_MOVE;
+            float fraction = (float) index / last;
+            // Raw and local coordinates coincide for synthesized events, which is all the bubble reads
+            MotionEvent event = MotionEvent.obtain(downTime, downTime + index * EVENT_INTERVAL_MS, action,
+                fromX + (toX - fromX) * fraction, fromY + (toY - fromY) * fraction, 0);
+            long start = System.nanoTime();
+            bubble.dispatchTouchEvent(event);
+            dispatchNanos += System.nanoTime() - start;
+            event.recycle();
+            idle(EVENT_INTERVAL_MS);
+        }
+        idle(SETTLE_MS);
+    }
+
+    private static void idle(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    private void begin(String name) {
+        scenario = name;
+        dispatchNanos = 0L;
+        callsAtStart = windows.calls;
+        bytesAtStart = allocatedBytes();
+    }
+
+    private void end() throws JSONException {
+        long allocated = allocatedBytes() - bytesAtStart;
+        JSONObject result = new JSONObject();
+        result.put("name", scenario);
+        result.put("dispatchMicros", dispatchNanos / 1000.0);
+        result.put("windowManagerCalls", windows.calls - callsAtStart);
+        result.put("viewCount", windows.attachedViews());
+        result.put("allocatedBytes", allocated);
+        results.put(result);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Every field set, so binding and text shaping do their full work
+    private static Offer scenarioOffer() {
+        HashMap<String, Object> values = new HashMap<>();
+        values.put("offerId", "scenario-offer");
+        values.put("title", "New Order");
+        values.put("popupTitle", "New Ride Request");
+        values.put("popupSubtitle", "Premium ride");
+        values.put("popupPrice", "Rp 128.500");
+        values.put("popupDuration", "32 min");
+        values.put("popupDistance", "21.4 km");
+        values.put("popupPickupAddress", "Jl. Jend. Sudirman Kav. 52-53, Senayan, Kebayoran Baru, Jakarta Selatan");
+        values.put("popupDestinationAddress", "Terminal 3 Keberangkatan, Bandara Internasional Soekarno-Hatta, Tangerang");
+        values.put("popupPaymentMethod", "Cash");
+        Offer offer = new Offer();
+        offer.applyPayload(values);
+        return offer;
+    }
+}
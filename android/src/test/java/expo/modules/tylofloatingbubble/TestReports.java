@@ -0,0 +1,45 @@
+package expo.modules.tylofloatingbubble;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+// Benchmark-style tests print their summary and keep a copy under
+// build/reports for diffing across versions
+final class TestReports {
+    private TestReports() {
+    }
+
+    // Gradle runs unit tests from the module directory
+    static void write(String name, JSONObject report) throws IOException, JSONException {
+        String json = report.toString(2);
+        System.out.println(name + ": " + json);
+        File directory = new File("build/reports");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory.getAbsolutePath());
+        }
+        FileWriter writer = new FileWriter(new File(directory, name));
+        try {
+            writer.write(json);
+        } finally {
+            writer.close();
+        }
+    }
+
+    static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+}
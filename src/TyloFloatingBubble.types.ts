@@ -1,5 +1,6 @@
 export interface TyloFloatingBubbleModuleEvents {
   onChange: { value: string };
+  onBubbleEvents: { events: FloatingBubbleEvent[] };
   [key: string]: any; // Add index signature for EventsMap compatibility
 }
 
@@ -10,7 +11,12 @@ export interface FloatingBubbleOptions {
   showBadge?: boolean;
   badgeCount?: number;
   autoRequestPermission?: boolean;
-  icon?: string; // Path to custom icon image, defaults to tylo circle.png
+  icon?: string; // Drawable name, file:// path or content:// URI; defaults to tylo circle.png
+
+  // Queue params
+  offerId?: string; // Re-sending an offer with the same id replaces the pending one
+  priority?: number; // Higher priority offers are shown first, defaults to 0
+  expiresAt?: number; // Epoch millis (Date.now() based); the offer is dropped once it passes
 
   // Popup params
   popupTitle?: string;
@@ -27,6 +33,110 @@ export interface FloatingBubbleOptions {
   popupRejectText?: string;
 }
 
+export interface FloatingBubbleHistogram {
+  count: number;
+  sum: number;
+  max: number;
+  p50: number;
+  p90: number;
+  p99: number;
+}
+
+export type MemoryTrimLevel =
+  | 'runningModerate'
+  | 'runningLow'
+  | 'runningCritical'
+  | 'uiHidden'
+  | 'background'
+  | 'moderate'
+  | 'complete'
+  | 'lowMemory'; // onLowMemory
+
+export interface MemoryTrimStats {
+  count: number;
+  bytesFreed: number; // estimated, summed over every trim at this level
+  lastBytesFreed: number;
+}
+
+export interface FloatingBubbleMetrics {
+  counters: {
+    showRequests: number;
+    warmShows: number; // shown from standby (prewarm) instead of built
+    ignoredShowRequests: number; // e.g. overlay permission missing
+    droppedShowRequests: number; // offer queue full
+    offersAccepted: number;
+    offersRejected: number;
+    offersExpired: number; // deadline passed while pending, or already past on arrival
+    offersEvicted: number; // queued, then pushed out of a full queue (offerDropped)
+    drags: number;
+    dragFrames: number;
+    dragRelayouts: number;
+    liveWindows: number; // overlay windows currently added (a gauge)
+    peakLiveWindows: number;
+    windowsAdded: number;
+    popupTextPrepared: number; // popup strings attached already shaped
+    popupTextShapedOnMain: number; // popup strings shaped at bind/measure time
+    eventsPublished: number;
+    eventsDropped: number; // event buffer full or emit failed
+    eventsCoalesced: number; // bubbleMoved superseded within a frame
+    eventBatches: number;
+    eventsPending: number;
+  };
+  // Latencies are in microseconds; percentiles are bucket upper bounds
+  histograms: {
+    showToFirstFrameMicros: FloatingBubbleHistogram;
+    tapToPopupVisibleMicros: FloatingBubbleHistogram;
+    popupVisibleToDecisionMicros: FloatingBubbleHistogram;
+    relayoutsPerDrag: FloatingBubbleHistogram;
+  };
+  memoryTrims: Record<MemoryTrimLevel, MemoryTrimStats>;
+}
+
+export type FloatingBubbleEventType =
+  | 'bubbleClick'
+  | 'bubbleMoved'
+  | 'bubbleLongPress'
+  | 'bubbleDoubleTap'
+  | 'bubbleDeleted'
+  | 'offerAccepted'
+  | 'offerRejected'
+  | 'offerExpired'
+  | 'offerDropped'
+  | 'popupDismissed'
+  | 'stateChanged';
+
+export interface FloatingBubbleEvent {
+  type: FloatingBubbleEventType;
+  timestamp: number; // Epoch millis when the event happened natively
+  offerId?: string; // offer* and popupDismissed
+  data?: Record<string, any>; // Extra fields the offer was shown with, e.g. orderData
+  x?: number; // bubbleMoved
+  y?: number;
+  dragging?: boolean;
+  settled?: boolean; // bubbleMoved: where a snap or fling came to rest
+  state?: FloatingBubbleState; // stateChanged
+}
+
+// 'views' builds the popup from nested Views; 'flat' draws the whole card in one View
+export type PopupRenderMode = 'views' | 'flat';
+
+// 'windows' gives the bubble, delete zone and popup a window each; 'compositor' shares one
+// lazily shown window between the delete zone and popup
+export type OverlayMode = 'windows' | 'compositor';
+
+export interface FloatingBubbleState {
+  running: boolean;
+  bubbleVisible: boolean;
+  standby: boolean; // prewarmed bubble attached but hidden, waiting for an offer
+  popupOpen: boolean;
+  queueDepth: number;
+  currentOfferId: string | null;
+  x?: number; // bubble position, while there is a bubble
+  y?: number;
+  version: number; // increments with every native state change
+  liveWindows?: number; // getBubbleState() only: overlay windows currently added by the bubble service
+}
+
 import { ViewStyle } from 'react-native';
 
 export interface TyloFloatingBubbleViewProps {
@@ -1,13 +1,25 @@
 import { requireNativeModule } from 'expo-modules-core';
 
-import { TyloFloatingBubbleModuleEvents } from './TyloFloatingBubble.types';
+import { FloatingBubbleMetrics, FloatingBubbleOptions, FloatingBubbleState, OverlayMode, PopupRenderMode, TyloFloatingBubbleModuleEvents } from './TyloFloatingBubble.types';
 
 declare class TyloFloatingBubbleModule {
+  // Native state when the module loaded; FloatingBubbleHelper.getState() keeps it current
+  readonly initialState?: FloatingBubbleState;
   showBubble(data: any): Promise<boolean>;
+  prewarm(): Promise<boolean>;
+  updateBubble(data: Partial<FloatingBubbleOptions>): Promise<boolean>;
   hideBubble(): Promise<boolean>;
   checkBubblePermission(): Promise<boolean>;
   requestBubblePermission(): Promise<boolean>;
   isBubbleVisible(): Promise<boolean>;
+  getBubbleState(): Promise<FloatingBubbleState>;
+  getQueueDepth(): Promise<number>;
+  getMetrics(): Promise<FloatingBubbleMetrics>;
+  resetMetrics(): Promise<boolean>;
+  setPopupRenderMode(mode: PopupRenderMode): Promise<boolean>;
+  setOverlayMode(mode: OverlayMode): Promise<boolean>;
+  setBubbleMovedRate(maxPerSecond: number): Promise<boolean>;
+  setDoubleTapEnabled(enabled: boolean): Promise<boolean>;
 }
 
 // This call loads the native module object from the JSI.
@@ -1,4 +1,4 @@
-import { TyloFloatingBubbleModuleEvents } from './TyloFloatingBubble.types';
+import { FloatingBubbleMetrics, FloatingBubbleOptions, FloatingBubbleState, OverlayMode, PopupRenderMode, TyloFloatingBubbleModuleEvents } from './TyloFloatingBubble.types';
 
 // Mock implementation for web platform
 class TyloFloatingBubbleModule {
@@ -7,6 +7,16 @@ class TyloFloatingBubbleModule {
     return false;
   }
 
+  async prewarm(): Promise<boolean> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return false;
+  }
+
+  async updateBubble(_data: Partial<FloatingBubbleOptions>): Promise<boolean> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return false;
+  }
+
   async hideBubble(): Promise<boolean> {
     console.warn('TyloFloatingBubble is not supported on web');
     return false;
@@ -26,6 +36,46 @@ class TyloFloatingBubbleModule {
     console.warn('TyloFloatingBubble is not supported on web');
     return false;
   }
+
+  async getBubbleState(): Promise<FloatingBubbleState | null> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return null;
+  }
+
+  async getQueueDepth(): Promise<number> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return 0;
+  }
+
+  async getMetrics(): Promise<FloatingBubbleMetrics | null> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return null;
+  }
+
+  async resetMetrics(): Promise<boolean> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return false;
+  }
+
+  async setPopupRenderMode(_mode: PopupRenderMode): Promise<boolean> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return false;
+  }
+
+  async setOverlayMode(_mode: OverlayMode): Promise<boolean> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return false;
+  }
+
+  async setBubbleMovedRate(_maxPerSecond: number): Promise<boolean> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return false;
+  }
+
+  async setDoubleTapEnabled(_enabled: boolean): Promise<boolean> {
+    console.warn('TyloFloatingBubble is not supported on web');
+    return false;
+  }
 }
 
-export default new TyloFloatingBubbleModule();
\ No newline at end of file
+export default new TyloFloatingBubbleModule();
@@ -4,6 +4,54 @@ export { default } from './TyloFloatingBubbleModule';
 // TyloFloatingBubbleView removed for Expo 49 compatibility
 export { default as TyloFloatingBubblePopup } from './TyloFloatingBubblePopup';
 export * from './TyloFloatingBubble.types';
+import { EventEmitter, Subscription } from 'expo-modules-core';
+
+import { FloatingBubbleEvent, FloatingBubbleOptions, FloatingBubbleState } from './TyloFloatingBubble.types';
+
+const STOPPED_STATE: FloatingBubbleState = {
+    running: false,
+    bubbleVisible: false,
+    standby: false,
+    popupOpen: false,
+    queueDepth: 0,
+    currentOfferId: null,
+    version: 0,
+};
+
+// Mirror of the native state snapshot, kept current by stateChanged events
+let latestState: FloatingBubbleState | null = null;
+let stateSubscription: Subscription | null = null;
+const stateListeners = new Set<(state: FloatingBubbleState) => void>();
+
+function applyState(state: FloatingBubbleState): void {
+    latestState = state;
+    stateListeners.forEach((listener) => listener(state));
+}
+
+function trackState(): FloatingBubbleState {
+    if (!stateSubscription) {
+        const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
+        // The load-time constant covers the first synchronous read; events sent before this subscription are gone
+        latestState = TyloFloatingBubble.initialState ?? STOPPED_STATE;
+        stateSubscription = new EventEmitter(TyloFloatingBubble).addListener<{ events: FloatingBubbleEvent[] }>('onBubbleEvents', (batch) => {
+            batch.events.forEach((event) => {
+                // Versions only grow, so a replayed older snapshot never wins
+                if (event.type === 'stateChanged' && event.state && event.state.version >= (latestState?.version ?? 0)) {
+                    applyState(event.state);
+                }
+            });
+        });
+        // So the mirror catches up with whatever changed since the module loaded
+        TyloFloatingBubble.getBubbleState()
+            .then((state: FloatingBubbleState | null) => {
+                if (state && state.version > (latestState?.version ?? 0)) {
+                    applyState(state);
+                }
+            })
+            .catch(() => {});
+    }
+    return latestState ?? STOPPED_STATE;
+}
 
 // Helper functions for the floating bubble
 export const FloatingBubbleHelper = {
@@ -17,24 +65,21 @@ export const FloatingBubbleHelper = {
      * @param {number} options.badgeCount - Number to display in the badge (default: 1)
      * @param {boolean} options.autoRequestPermission - Automatically request permission if needed (default: false)
      * @param {string} options.icon - Path to custom icon image (default: uses tylo circle.png)
+     * @param {string} options.offerId - Offer id; showing the same id again replaces the pending offer
+     * @param {number} options.priority - Higher priority offers are shown first (default: 0)
+     * @param {number} options.expiresAt - Deadline in epoch millis; the offer is dropped with an offerExpired event once it passes
+     * @param {string} options.popupTitle - Popup fields (popupTitle, popupPrice, popupPickupAddress, ...) are shown as given
      * @returns {Promise<boolean>} - Whether the bubble was shown successfully
      */
-    async showBubble(options: {
-        title?: string;
-        subtitle?: string;
-        orderData?: any;
-        showBadge?: boolean;
-        badgeCount?: number;
-        autoRequestPermission?: boolean;
-        icon?: string;
-    } = {}): Promise<boolean> {
+    async showBubble(options: FloatingBubbleOptions = {}): Promise<boolean> {
         const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
+        const { autoRequestPermission, ...offer } = options;
 
         // Check permission first
         const hasPermission = await TyloFloatingBubble.checkBubblePermission();
 
         // Request permission if needed and auto-request is enabled
-        if (!hasPermission && options.autoRequestPermission) {
+        if (!hasPermission && autoRequestPermission) {
             await TyloFloatingBubble.requestBubblePermission();
             // We need to check again after requesting
             if (!await TyloFloatingBubble.checkBubblePermission()) {
@@ -46,8 +91,9 @@ export const FloatingBubbleHelper = {
             return false;
         }
 
-        // Prepare bubble data
+        // Prepare bubble data; every other option (offer id, priority, popup fields) goes through as given
         const bubbleData = {
+            ...offer,
             title: options.title || 'New Order',
             subtitle: options.subtitle || 'Tap to view details',
             orderData: options.orderData || null,
@@ -60,6 +106,25 @@ export const FloatingBubbleHelper = {
         return await TyloFloatingBubble.showBubble(bubbleData);
     },
 
+    /**
+     * Build and attach a hidden bubble ahead of the first offer, e.g. when the driver goes online
+     * @returns {Promise<boolean>} - Whether the bubble is warm (false without the overlay permission)
+     */
+    async prewarm(): Promise<boolean> {
+        const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
+        return await TyloFloatingBubble.prewarm();
+    },
+
+    /**
+     * Update the visible bubble and any open popup in place, keeping its position
+     * @param {Partial<FloatingBubbleOptions>} data - Only the fields to change; pass offerId to target a queued offer
+     * @returns {Promise<boolean>} - Whether an update was sent to a running bubble
+     */
+    async updateBubble(data: Partial<FloatingBubbleOptions>): Promise<boolean> {
+        const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
+        return await TyloFloatingBubble.updateBubble(data);
+    },
+
     /**
      * Hide the floating bubble
      * @returns {Promise<boolean>} - Whether the bubble was hidden successfully
@@ -96,5 +161,62 @@ export const FloatingBubbleHelper = {
     async isVisible(): Promise<boolean> {
         const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
         return await TyloFloatingBubble.isBubbleVisible();
+    },
+
+    /**
+     * Latest bubble state, read synchronously from the native snapshot mirrored in JS
+     * @returns {FloatingBubbleState} - Whether the bubble is visible, the popup is open, the current offer and queue depth, and the position
+     */
+    getState(): FloatingBubbleState {
+        return trackState();
+    },
+
+    /**
+     * Listen to state changes instead of polling; called once per change, after the mirror is updated
+     * @param {Function} listener - Called with the new state
+     * @returns {{ remove: () => void }} - Call remove() to stop listening
+     */
+    addStateListener(listener: (state: FloatingBubbleState) => void): { remove: () => void } {
+        trackState();
+        stateListeners.add(listener);
+        return {
+            remove: () => {
+                stateListeners.delete(listener);
+            },
+        };
+    },
+
+    /**
+     * Opt in to bubbleMoved events while the bubble is dragged or snapping; the settled position is always sent
+     * @param {number} maxPerSecond - Most positions per second (0-120); only the latest in each interval is sent, 0 sends settled positions only
+     * @returns {Promise<boolean>} - Whether the rate was applied
+     */
+    async setBubbleMovedRate(maxPerSecond: number): Promise<boolean> {
+        const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
+        return await TyloFloatingBubble.setBubbleMovedRate(maxPerSecond);
+    },
+
+    /**
+     * Opt in to bubbleDoubleTap events; while on, a single tap opens the popup only after the double-tap timeout
+     * @param {boolean} enabled - Whether to tell double taps apart from single taps
+     * @returns {Promise<boolean>} - Whether the setting was applied
+     */
+    async setDoubleTapEnabled(enabled: boolean): Promise<boolean> {
+        const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
+        return await TyloFloatingBubble.setDoubleTapEnabled(enabled);
+    },
+
+    /**
+     * Listen to bubble events (click, move, delete, accept, reject, dismiss)
+     * Events raised before JS was ready are replayed in order; moves are coalesced to one per frame
+     * @param {Function} listener - Called once per event
+     * @returns {Subscription} - Call remove() to stop listening
+     */
+    addEventListener(listener: (event: FloatingBubbleEvent) => void): Subscription {
+        const TyloFloatingBubble = require('./TyloFloatingBubbleModule').default;
+        const emitter = new EventEmitter(TyloFloatingBubble);
+        return emitter.addListener<{ events: FloatingBubbleEvent[] }>('onBubbleEvents', (batch) => {
+            batch.events.forEach(listener);
+        });
     }
 };
\ No newline at end of file